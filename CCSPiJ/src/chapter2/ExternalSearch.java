@@ -0,0 +1,388 @@
+// ExternalSearch.java
+// From Classic Computer Science Problems in Java Chapter 2
+// Copyright 2020 David Kopec
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package chapter2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import chapter2.GenericSearch.Node;
+
+// Breadth-first search whose frontier and explored set live on disk instead of
+// the heap, using delayed duplicate detection: the successors of a whole level
+// are gathered into sorted runs of at most *maxStatesInMemory* states, then the
+// runs are merged with each other and with the sorted explored file, which
+// drops every duplicate in one sequential pass. All files hold states in the
+// byte order of their serialized form and are gzip compressed.
+public class ExternalSearch {
+
+	// turns a state into bytes and back, equal states must give equal bytes
+	public interface StateSerializer<T> {
+		void write(T state, DataOutput out) throws IOException;
+
+		T read(DataInput in) throws IOException;
+	}
+
+	public static <T> Node<T> bfs(T initial, Predicate<T> goalTest, Function<T, List<T>> successors,
+			StateSerializer<T> serializer, Path tempDirectory, int maxStatesInMemory) {
+		return bfs(initial, goalTest, successors, serializer, tempDirectory, maxStatesInMemory,
+				SearchStats.DISABLED);
+	}
+
+	// Returns a Node chain like GenericSearch.bfs, rebuilt by scanning the saved
+	// levels backwards for a parent of each state. With a goalTest that is never
+	// true this enumerates the whole reachable space and returns null.
+	public static <T> Node<T> bfs(T initial, Predicate<T> goalTest, Function<T, List<T>> successors,
+			StateSerializer<T> serializer, Path tempDirectory, int maxStatesInMemory, SearchStats stats) {
+		Path directory;
+		try {
+			directory = Files.createTempDirectory(tempDirectory, "bfs");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		Node<T> result;
+		try {
+			result = search(initial, goalTest, successors, serializer, directory, maxStatesInMemory, stats);
+		} catch (IOException e) {
+			throw deleteAfterFailure(directory, new UncheckedIOException(e));
+		} catch (RuntimeException e) {
+			throw deleteAfterFailure(directory, e);
+		} catch (Error e) {
+			throw deleteAfterFailure(directory, e);
+		}
+		deleteDirectory(directory);
+		return result;
+	}
+
+	// deletes *directory* without letting a failure there hide *failure*
+	private static <E extends Throwable> E deleteAfterFailure(Path directory, E failure) {
+		try {
+			deleteDirectory(directory);
+		} catch (UncheckedIOException e) {
+			failure.addSuppressed(e);
+		}
+		return failure;
+	}
+
+	private static <T> Node<T> search(T initial, Predicate<T> goalTest, Function<T, List<T>> successors,
+			StateSerializer<T> serializer, Path directory, int maxStatesInMemory, SearchStats stats)
+			throws IOException {
+		stats.startPhase("external bfs");
+		try {
+			List<Path> levels = new ArrayList<>();
+			Path explored = directory.resolve("explored");
+			byte[] initialBytes = encode(initial, serializer);
+			writeSorted(List.of(initialBytes), levels, directory);
+			Files.copy(levels.get(0), explored);
+			long exploredSize = 1;
+
+			while (true) {
+				Path level = levels.get(levels.size() - 1);
+				List<Path> runs = new ArrayList<>();
+				List<byte[]> buffer = new ArrayList<>();
+				// expand every state in this level, spilling sorted runs as the buffer fills
+				try (RunReader reader = new RunReader(level)) {
+					for (byte[] bytes = reader.current; bytes != null; bytes = reader.advance()) {
+						T state = decode(bytes, serializer);
+						if (goalTest.test(state)) {
+							return rebuildPath(state, bytes, levels, successors, serializer);
+						}
+						stats.expanded();
+						for (T child : successors.apply(state)) {
+							stats.generated();
+							buffer.add(encode(child, serializer));
+							if (buffer.size() >= maxStatesInMemory) {
+								writeSorted(buffer, runs, directory);
+								buffer.clear();
+							}
+						}
+					}
+				}
+				if (!buffer.isEmpty()) {
+					writeSorted(buffer, runs, directory);
+				}
+				// merge the runs, dropping duplicates and anything already explored
+				Path next = directory.resolve("level" + levels.size());
+				long newStates = mergeNew(runs, explored, next, stats);
+				for (Path run : runs) {
+					Files.delete(run);
+				}
+				if (newStates == 0) {
+					Files.delete(next);
+					return null; // went through everything and never found goal
+				}
+				levels.add(next);
+				// fold the new level into the explored file
+				Path merged = directory.resolve("explored.next");
+				mergeDisjoint(explored, next, merged);
+				Files.move(merged, explored, StandardCopyOption.REPLACE_EXISTING);
+				exploredSize += newStates;
+				stats.frontierSize((int) Math.min(newStates, Integer.MAX_VALUE));
+				stats.exploredSize((int) Math.min(exploredSize, Integer.MAX_VALUE));
+			}
+		} finally {
+			stats.endPhase("external bfs");
+		}
+	}
+
+	// walk back one level at a time, finding any state there with the current state as a successor
+	private static <T> Node<T> rebuildPath(T goal, byte[] goalBytes, List<Path> levels,
+			Function<T, List<T>> successors, StateSerializer<T> serializer) throws IOException {
+		List<T> path = new ArrayList<>();
+		path.add(goal);
+		byte[] target = goalBytes;
+		for (int depth = levels.size() - 2; depth >= 0; depth--) {
+			byte[] parentBytes = null;
+			T parent = null;
+			try (RunReader reader = new RunReader(levels.get(depth))) {
+				for (byte[] bytes = reader.current; bytes != null && parent == null; bytes = reader.advance()) {
+					T candidate = decode(bytes, serializer);
+					for (T child : successors.apply(candidate)) {
+						if (Arrays.equals(encode(child, serializer), target)) {
+							parent = candidate;
+							parentBytes = bytes;
+							break;
+						}
+					}
+				}
+			}
+			if (parent == null) {
+				throw new IllegalStateException("No parent found for a state at depth " + (depth + 1));
+			}
+			path.add(parent);
+			target = parentBytes;
+		}
+		Collections.reverse(path);
+		Node<T> node = null;
+		for (T state : path) {
+			node = new Node<>(state, node, node == null ? 0.0 : node.cost + 1, 0.0);
+		}
+		return node;
+	}
+
+	private static <T> byte[] encode(T state, StateSerializer<T> serializer) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			serializer.write(state, out);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static <T> T decode(byte[] bytes, StateSerializer<T> serializer) throws IOException {
+		return serializer.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+	}
+
+	private static DataOutputStream openRun(Path path) throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(path))));
+	}
+
+	private static void writeRecord(DataOutputStream out, byte[] bytes) throws IOException {
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	// -1 marks the end of a run
+	private static void finishRun(DataOutputStream out) throws IOException {
+		out.writeInt(-1);
+	}
+
+	// sort and de-duplicate *states*, then write them as a new run added to *runs*
+	private static void writeSorted(List<byte[]> states, List<Path> runs, Path directory) throws IOException {
+		List<byte[]> sorted = new ArrayList<>(states);
+		sorted.sort(Arrays::compareUnsigned);
+		Path run = directory.resolve("run" + System.nanoTime() + "-" + runs.size());
+		try (DataOutputStream out = openRun(run)) {
+			byte[] previous = null;
+			for (byte[] bytes : sorted) {
+				if (previous == null || !Arrays.equals(previous, bytes)) {
+					writeRecord(out, bytes);
+				}
+				previous = bytes;
+			}
+			finishRun(out);
+		}
+		runs.add(run);
+	}
+
+	// k-way merge of *runs* into *out*, skipping repeats and states in *explored*
+	// returns the number of states written
+	private static long mergeNew(List<Path> runs, Path explored, Path out, SearchStats stats)
+			throws IOException {
+		long written = 0;
+		PriorityQueue<RunReader> readers = new PriorityQueue<>(
+				(r1, r2) -> Arrays.compareUnsigned(r1.current, r2.current));
+		try (RunReader exploredReader = new RunReader(explored)) {
+			try {
+				for (Path run : runs) {
+					RunReader reader = new RunReader(run);
+					if (reader.current == null) {
+						reader.close();
+					} else {
+						readers.offer(reader);
+					}
+				}
+				try (DataOutputStream output = openRun(out)) {
+					byte[] previous = null;
+					while (!readers.isEmpty()) {
+						RunReader reader = readers.poll();
+						byte[] bytes = reader.current;
+						if (reader.advance() == null) {
+							reader.close();
+						} else {
+							readers.offer(reader);
+						}
+						if (previous != null && Arrays.equals(previous, bytes)) {
+							stats.duplicate();
+							continue;
+						}
+						previous = bytes;
+						// explored is sorted too, so it only ever moves forward
+						while (exploredReader.current != null
+								&& Arrays.compareUnsigned(exploredReader.current, bytes) < 0) {
+							exploredReader.advance();
+						}
+						if (exploredReader.current != null && Arrays.equals(exploredReader.current, bytes)) {
+							stats.duplicate();
+							continue;
+						}
+						writeRecord(output, bytes);
+						written++;
+					}
+					finishRun(output);
+				}
+			} finally {
+				for (RunReader reader : readers) {
+					reader.close();
+				}
+			}
+		}
+		return written;
+	}
+
+	// merge two sorted files with no states in common
+	private static void mergeDisjoint(Path first, Path second, Path out) throws IOException {
+		try (RunReader a = new RunReader(first); RunReader b = new RunReader(second);
+				DataOutputStream output = openRun(out)) {
+			while (a.current != null || b.current != null) {
+				if (b.current == null || (a.current != null && Arrays.compareUnsigned(a.current, b.current) < 0)) {
+					writeRecord(output, a.current);
+					a.advance();
+				} else {
+					writeRecord(output, b.current);
+					b.advance();
+				}
+			}
+			finishRun(output);
+		}
+	}
+
+	private static void deleteDirectory(Path directory) {
+		try (Stream<Path> files = Files.list(directory)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				Files.deleteIfExists(file);
+			}
+			Files.deleteIfExists(directory);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// reads a run one record at a time, *current* is null once it is used up
+	private static final class RunReader implements Closeable {
+		private final DataInputStream in;
+		byte[] current;
+
+		RunReader(Path path) throws IOException {
+			InputStream file = Files.newInputStream(path);
+			try {
+				in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(file)));
+				advance();
+			} catch (IOException | RuntimeException e) {
+				// a bad header or first record mustn't leak the file handle
+				try {
+					file.close();
+				} catch (IOException closing) {
+					e.addSuppressed(closing);
+				}
+				throw e;
+			}
+		}
+
+		byte[] advance() throws IOException {
+			int length = in.readInt();
+			if (length < 0) {
+				current = null;
+			} else {
+				current = new byte[length];
+				in.readFully(current);
+			}
+			return current;
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+
+	public static void main(String[] args) {
+		// a graph of the ints 0 until 100,000 where n leads to 3n + 1 and n + 7,
+		// searched with only 1,000 states in memory at a time
+		int size = 100_000;
+		StateSerializer<Integer> ints = new StateSerializer<>() {
+			@Override
+			public void write(Integer state, DataOutput out) throws IOException {
+				out.writeInt(state);
+			}
+
+			@Override
+			public Integer read(DataInput in) throws IOException {
+				return in.readInt();
+			}
+		};
+		Function<Integer, List<Integer>> successors = n -> List.of((3 * n + 1) % size, (n + 7) % size);
+		Path temp = Path.of(System.getProperty("java.io.tmpdir"));
+		SearchStats stats = new SearchStats();
+		Node<Integer> solution = bfs(1, n -> n == 54_321, successors, ints, temp, 1_000, stats);
+		System.out.println(solution == null ? "No solution found!" : GenericSearch.nodeToPath(solution));
+		System.out.println(GenericSearch.nodeToPath(GenericSearch.bfs(1, n -> n == 54_321, successors)));
+		System.out.println(stats);
+	}
+
+}
@@ -16,22 +16,27 @@
 
 package chapter2;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
 
 public class Gene {
 
+	// largest k that gets a direct table of 4^k offsets
+	public static final int MAX_DIRECT_K = 12;
+
 	public enum Nucleotide {
 		A, C, G, T
 	}
 
 	public static class Codon implements Comparable<Codon> {
-		public final Nucleotide first, second, third;
-		private final Comparator<Codon> comparator = Comparator.comparing((Codon c) -> c.first)
+		// shared by every Codon rather than built per instance
+		private static final Comparator<Codon> COMPARATOR = Comparator.comparing((Codon c) -> c.first)
 				.thenComparing((Codon c) -> c.second)
 				.thenComparing((Codon c) -> c.third);
 
+		public final Nucleotide first, second, third;
+
 		public Codon(String codonStr) {
 			first = Nucleotide.valueOf(codonStr.substring(0, 1));
 			second = Nucleotide.valueOf(codonStr.substring(1, 2));
@@ -42,22 +47,202 @@ public class Gene {
 		public int compareTo(Codon other) {
 			// first is compared first, then second, etc.
 			// IOW first takes precedence over second and second over third
-			return comparator.compare(this, other);
+			return COMPARATOR.compare(this, other);
+		}
+
+		// a number from 0 to 63 that sorts the same way as compareTo
+		public int index() {
+			return (first.ordinal() << 4) | (second.ordinal() << 2) | third.ordinal();
 		}
 	}
 
-	private ArrayList<Codon> codons = new ArrayList<>();
+	// Finds every position of a k-mer (a run of k nucleotides) in the gene.
+	// Positions are grouped by k-mer code (2 bits per nucleotide, first
+	// nucleotide highest), so a lookup is an array read (k <= 12) or a binary
+	// search (longer k) followed by a range of *positions*, with no allocation.
+	public class KmerIndex {
+		public final int k;
+		private final int[] offsets; // k <= 12: positions of code c are offsets[c] until offsets[c + 1]
+		private final long[] codes; // k > 12: the code at each entry of positions, sorted
+		private final int[] positions;
+
+		private KmerIndex(int k) {
+			this.k = k;
+			int count = Math.max(0, length - k + 1);
+			positions = new int[count];
+			if (k <= MAX_DIRECT_K) {
+				// counting sort: count each code, turn counts into offsets, then place
+				offsets = new int[(1 << (2 * k)) + 1];
+				codes = null;
+				for (int i = 0; i < count; i++) {
+					offsets[(int) kmerAt(i, k) + 1]++;
+				}
+				for (int code = 0; code < offsets.length - 1; code++) {
+					offsets[code + 1] += offsets[code];
+				}
+				int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+				for (int i = 0; i < count; i++) {
+					positions[next[(int) kmerAt(i, k)]++] = i;
+				}
+			} else {
+				// too many codes for a table, sort (code, position) pairs instead
+				offsets = null;
+				codes = new long[count];
+				for (int i = 0; i < count; i++) {
+					codes[i] = kmerAt(i, k);
+					positions[i] = i;
+				}
+				radixSort(codes, positions, 2 * k);
+			}
+		}
+
+		// first entry in *positions* for *code*
+		private int start(long code) {
+			if (offsets != null) {
+				return code < 0 || code >= offsets.length - 1 ? 0 : offsets[(int) code];
+			}
+			int low = 0;
+			int high = codes.length;
+			while (low < high) { // lower bound
+				int middle = (low + high) >>> 1;
+				if (codes[middle] < code) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+
+		public int count(long code) {
+			if (offsets != null) {
+				return code < 0 || code >= offsets.length - 1 ? 0
+						: offsets[(int) code + 1] - offsets[(int) code];
+			}
+			return start(code + 1) - start(code);
+		}
+
+		// the *i*th position (in increasing order) of *code*, for 0 <= i < count(code)
+		public int position(long code, int i) {
+			return positions[start(code) + i];
+		}
+
+		public int[] positionsOf(String kmer) {
+			long code = encode(kmer);
+			int first = start(code);
+			return Arrays.copyOfRange(positions, first, first + count(code));
+		}
+	}
+
+	// Stable least significant digit radix sort of *codes* (each under 2^bits),
+	// moving *positions* along with them, 16 bits per pass
+	private static void radixSort(long[] codes, int[] positions, int bits) {
+		long[] codeBuffer = new long[codes.length];
+		int[] positionBuffer = new int[positions.length];
+		int[] counts = new int[(1 << 16) + 1];
+		for (int shift = 0; shift < bits; shift += 16) {
+			Arrays.fill(counts, 0);
+			for (long code : codes) {
+				counts[(int) ((code >>> shift) & 0xFFFF) + 1]++;
+			}
+			for (int digit = 0; digit < 1 << 16; digit++) {
+				counts[digit + 1] += counts[digit];
+			}
+			for (int i = 0; i < codes.length; i++) {
+				int slot = counts[(int) ((codes[i] >>> shift) & 0xFFFF)]++;
+				codeBuffer[slot] = codes[i];
+				positionBuffer[slot] = positions[i];
+			}
+			System.arraycopy(codeBuffer, 0, codes, 0, codes.length);
+			System.arraycopy(positionBuffer, 0, positions, 0, positions.length);
+		}
+	}
+
+	// 2 bits per nucleotide, 32 to a long, A = 0, C = 1, G = 2, T = 3
+	private final long[] packed;
+	private final int length;
+	// every codon, the last one starting at length - 3, matching kmerIndex(3)
+	private final int codonCount;
+	// there are only 64 possible codons, so one long records which are present:
+	// bit i is set if a codon with index i is in the gene
+	private final long presence;
+	// sorted the first time binaryContains needs it, then published whole so
+	// another thread never sees it half filled
+	private volatile byte[] sortedCodons;
 
 	public Gene(String geneStr) {
-		for (int i = 0; i < geneStr.length() - 3; i++) {
-			// Take every 3 characters in the String and form a Codon
-			codons.add(new Codon(geneStr.substring(i, i + 3)));
+		length = geneStr.length();
+		codonCount = Math.max(0, length - 2);
+		packed = new long[(length + 31) >>> 5];
+		for (int i = 0; i < length; i++) {
+			packed[i >>> 5] |= (long) nucleotideCode(geneStr.charAt(i)) << ((i & 31) << 1);
+		}
+		long codons = 0;
+		for (int i = 0; i < codonCount; i++) {
+			codons |= 1L << kmerAt(i, 3);
 		}
+		presence = codons;
+	}
+
+	private static int nucleotideCode(char c) {
+		switch (c) {
+		case 'A':
+			return 0;
+		case 'C':
+			return 1;
+		case 'G':
+			return 2;
+		case 'T':
+			return 3;
+		default:
+			throw new IllegalArgumentException("The provided gene String contains characters other than ACGT");
+		}
+	}
+
+	// the code of a k-mer given as a String, in the same layout KmerIndex uses
+	public static long encode(String kmer) {
+		if (kmer.length() > 31) {
+			throw new IllegalArgumentException("k-mers longer than 31 don't fit in a long");
+		}
+		long code = 0;
+		for (int i = 0; i < kmer.length(); i++) {
+			code = (code << 2) | nucleotideCode(kmer.charAt(i));
+		}
+		return code;
+	}
+
+	public int length() {
+		return length;
+	}
+
+	public Nucleotide nucleotideAt(int position) {
+		return Nucleotide.values()[nucleotide(position)];
+	}
+
+	private int nucleotide(int position) {
+		return (int) (packed[position >>> 5] >>> ((position & 31) << 1)) & 3;
+	}
+
+	// the code of the k nucleotides starting at *position*
+	private long kmerAt(int position, int k) {
+		long code = 0;
+		for (int i = position; i < position + k; i++) {
+			code = (code << 2) | nucleotide(i);
+		}
+		return code;
+	}
+
+	public KmerIndex kmerIndex(int k) {
+		if (k < 1 || k > 31) {
+			throw new IllegalArgumentException("k must be between 1 and 31");
+		}
+		return new KmerIndex(k);
 	}
 
 	public boolean linearContains(Codon key) {
-		for (Codon codon : codons) {
-			if (codon.compareTo(key) == 0) {
+		int keyIndex = key.index();
+		for (int i = 0; i < codonCount; i++) {
+			if (kmerAt(i, 3) == keyIndex) {
 				return true; // found a match
 			}
 		}
@@ -65,14 +250,23 @@ public class Gene {
 	}
 
 	public boolean binaryContains(Codon key) {
-		// binary search only works on sorted collections
-		ArrayList<Codon> sortedCodons = new ArrayList<>(codons);
-		Collections.sort(sortedCodons);
+		// binary search only works on sorted collections, so sort once and keep it
+		byte[] sortedCodons = this.sortedCodons;
+		if (sortedCodons == null) {
+			// two threads may both sort, but each publishes a finished array
+			sortedCodons = new byte[codonCount];
+			for (int i = 0; i < codonCount; i++) {
+				sortedCodons[i] = (byte) kmerAt(i, 3);
+			}
+			Arrays.sort(sortedCodons); // codon indexes are 0 to 63, so byte order is codon order
+			this.sortedCodons = sortedCodons;
+		}
+		int keyIndex = key.index();
 		int low = 0;
-		int high = sortedCodons.size() - 1;
+		int high = sortedCodons.length - 1;
 		while (low <= high) { // while there is still a search space
 			int middle = (low + high) / 2;
-			int comparison = codons.get(middle).compareTo(key);
+			int comparison = Integer.compare(sortedCodons[middle], keyIndex);
 			if (comparison < 0) { // middle codon is less than key
 				low = middle + 1;
 			} else if (comparison > 0) { // middle codon is greater than key
@@ -84,6 +278,29 @@ public class Gene {
 		return false;
 	}
 
+	public boolean maskContains(Codon key) {
+		return (presence & (1L << key.index())) != 0;
+	}
+
+	// answers for many keys at once, in the same order as *keys*
+	public boolean[] containsEach(List<Codon> keys) {
+		long mask = presence;
+		boolean[] results = new boolean[keys.size()];
+		for (int i = 0; i < results.length; i++) {
+			results[i] = (mask & (1L << keys.get(i).index())) != 0;
+		}
+		return results;
+	}
+
+	// true only if every one of *keys* is in the gene
+	public boolean containsAll(List<Codon> keys) {
+		long wanted = 0;
+		for (Codon key : keys) {
+			wanted |= 1L << key.index();
+		}
+		return (presence & wanted) == wanted;
+	}
+
 	public static void main(String[] args) {
 		String geneStr = "ACGTGGCTCTCTAACGTACGTACGTACGGGGTTTATATATACCCTAGGACTCCCTTT";
 		Gene myGene = new Gene(geneStr);
@@ -93,6 +310,11 @@ public class Gene {
 		System.out.println(myGene.linearContains(gat)); // false
 		System.out.println(myGene.binaryContains(acg)); // true
 		System.out.println(myGene.binaryContains(gat)); // false
+		System.out.println(myGene.maskContains(acg)); // true
+		System.out.println(Arrays.toString(myGene.containsEach(List.of(acg, gat)))); // [true, false]
+		KmerIndex codonIndex = myGene.kmerIndex(3);
+		System.out.println(Arrays.toString(codonIndex.positionsOf("ACG"))); // [0, 13, 17, 21, 25]
+		System.out.println(Arrays.toString(myGene.kmerIndex(14).positionsOf("TACGTACGTACGGG"))); // [16]
 
 	}
 
@@ -16,19 +16,34 @@
 
 package chapter2;
 
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.ToDoubleBiFunction;
 import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class GenericSearch {
 
@@ -59,6 +74,176 @@ public class GenericSearch {
 		return false;
 	}
 
+	public static boolean linearContains(int[] array, int key) {
+		for (int item : array) {
+			if (item == key) {
+				return true; // found a match
+			}
+		}
+		return false;
+	}
+
+	public static boolean linearContains(long[] array, long key) {
+		for (long item : array) {
+			if (item == key) {
+				return true; // found a match
+			}
+		}
+		return false;
+	}
+
+	// uses Double.compare equality, so NaN finds NaN and 0.0 doesn't find -0.0
+	public static boolean linearContains(double[] array, double key) {
+		for (double item : array) {
+			if (Double.compare(item, key) == 0) {
+				return true; // found a match
+			}
+		}
+		return false;
+	}
+
+	// assumes *array* is already sorted
+	public static boolean binaryContains(int[] array, int key) {
+		int low = 0;
+		int high = array.length - 1;
+		while (low <= high) { // while there is still a search space
+			int middle = (low + high) >>> 1;
+			if (array[middle] < key) {
+				low = middle + 1;
+			} else if (array[middle] > key) {
+				high = middle - 1;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// assumes *array* is already sorted
+	public static boolean binaryContains(long[] array, long key) {
+		int low = 0;
+		int high = array.length - 1;
+		while (low <= high) { // while there is still a search space
+			int middle = (low + high) >>> 1;
+			if (array[middle] < key) {
+				low = middle + 1;
+			} else if (array[middle] > key) {
+				high = middle - 1;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// assumes *array* is sorted as Arrays.sort(double[]) sorts it
+	public static boolean binaryContains(double[] array, double key) {
+		int low = 0;
+		int high = array.length - 1;
+		while (low <= high) { // while there is still a search space
+			int middle = (low + high) >>> 1;
+			int comparison = Double.compare(array[middle], key);
+			if (comparison < 0) {
+				low = middle + 1;
+			} else if (comparison > 0) {
+				high = middle - 1;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Answers whether each of *sortedQueries* is in *sortedKeys*, in one forward
+	// pass over both. Each step gallops ahead (1, 2, 4... places) and then binary
+	// searches the last gap, so it costs O(queries * log(keys / queries)) and
+	// only ever touches memory ahead of where it has been.
+	public static boolean[] binaryContainsAll(int[] sortedKeys, int[] sortedQueries) {
+		boolean[] results = new boolean[sortedQueries.length];
+		int position = 0;
+		for (int q = 0; q < sortedQueries.length && position < sortedKeys.length; q++) {
+			int query = sortedQueries[q];
+			// gallop until sortedKeys[position + step] >= query or we run out
+			int step = 1;
+			while (position + step < sortedKeys.length && sortedKeys[position + step] < query) {
+				position += step;
+				step <<= 1;
+			}
+			// lower bound in (position, position + step]
+			int low = sortedKeys[position] < query ? position + 1 : position;
+			int high = Math.min(position + step, sortedKeys.length);
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (sortedKeys[middle] < query) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			position = Math.min(low, sortedKeys.length - 1);
+			results[q] = low < sortedKeys.length && sortedKeys[low] == query;
+		}
+		return results;
+	}
+
+	public static boolean[] binaryContainsAll(long[] sortedKeys, long[] sortedQueries) {
+		boolean[] results = new boolean[sortedQueries.length];
+		int position = 0;
+		for (int q = 0; q < sortedQueries.length && position < sortedKeys.length; q++) {
+			long query = sortedQueries[q];
+			// gallop until sortedKeys[position + step] >= query or we run out
+			int step = 1;
+			while (position + step < sortedKeys.length && sortedKeys[position + step] < query) {
+				position += step;
+				step <<= 1;
+			}
+			// lower bound in (position, position + step]
+			int low = sortedKeys[position] < query ? position + 1 : position;
+			int high = Math.min(position + step, sortedKeys.length);
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (sortedKeys[middle] < query) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			position = Math.min(low, sortedKeys.length - 1);
+			results[q] = low < sortedKeys.length && sortedKeys[low] == query;
+		}
+		return results;
+	}
+
+	// Rearrange sorted *keys* into Eytzinger (breadth-first binary tree) order,
+	// root at index 1, so that searching walks down the array cache line by
+	// cache line instead of jumping around it. Use with eytzingerContains.
+	public static int[] eytzinger(int[] sortedKeys) {
+		int[] layout = new int[sortedKeys.length + 1];
+		eytzingerFill(sortedKeys, layout, 0, 1);
+		return layout;
+	}
+
+	// in-order walk of the implicit tree, handing out keys in sorted order
+	private static int eytzingerFill(int[] sortedKeys, int[] layout, int next, int node) {
+		if (node < layout.length) {
+			next = eytzingerFill(sortedKeys, layout, next, 2 * node);
+			layout[node] = sortedKeys[next++];
+			next = eytzingerFill(sortedKeys, layout, next, 2 * node + 1);
+		}
+		return next;
+	}
+
+	// branch-free descent: go left or right by adding the comparison result
+	public static boolean eytzingerContains(int[] layout, int key) {
+		int node = 1;
+		while (node < layout.length) {
+			node = 2 * node + (layout[node] < key ? 1 : 0);
+		}
+		// undo the right turns taken after the last left turn to find the lower bound
+		node >>>= Integer.numberOfTrailingZeros(~node) + 1;
+		return node != 0 && layout[node] == key;
+	}
+
 	public static class Node<T> implements Comparable<Node<T>> {
 		final T state;
 		Node<T> parent;
@@ -89,6 +274,12 @@ public class GenericSearch {
 
 	public static <T> Node<T> dfs(T initial, Predicate<T> goalTest,
 			Function<T, List<T>> successors) {
+		return dfs(initial, goalTest, successors, SearchStats.DISABLED);
+	}
+
+	public static <T> Node<T> dfs(T initial, Predicate<T> goalTest,
+			Function<T, List<T>> successors, SearchStats stats) {
+		stats.startPhase("dfs");
 		// frontier is where we've yet to go
 		Stack<Node<T>> frontier = new Stack<>();
 		frontier.push(new Node<>(initial, null));
@@ -96,39 +287,82 @@ public class GenericSearch {
 		Set<T> explored = new HashSet<>();
 		explored.add(initial);
 
-		// keep going while there is more to explore
-		while (!frontier.isEmpty()) {
-			Node<T> currentNode = frontier.pop();
-			T currentState = currentNode.state;
-			// if we found the goal, we're done
-			if (goalTest.test(currentState)) {
-				return currentNode;
-			}
-			// check where we can go next and haven't explored
-			for (T child : successors.apply(currentState)) {
-				if (explored.contains(child)) {
-					continue; // skip children we already explored
+		try {
+			// keep going while there is more to explore
+			while (!frontier.isEmpty()) {
+				Node<T> currentNode = frontier.pop();
+				T currentState = currentNode.state;
+				// if we found the goal, we're done
+				if (goalTest.test(currentState)) {
+					return currentNode;
+				}
+				stats.expanded();
+				// check where we can go next and haven't explored
+				for (T child : successors.apply(currentState)) {
+					stats.generated();
+					if (explored.contains(child)) {
+						stats.duplicate();
+						continue; // skip children we already explored
+					}
+					explored.add(child);
+					frontier.push(new Node<>(child, currentNode));
 				}
-				explored.add(child);
-				frontier.push(new Node<>(child, currentNode));
+				stats.frontierSize(frontier.size());
+				stats.exploredSize(explored.size());
 			}
+			return null; // went through everything and never found goal
+		} finally {
+			stats.endPhase("dfs");
 		}
-		return null; // went through everything and never found goal
 	}
 
 	public static <T> List<T> nodeToPath(Node<T> node) {
 		List<T> path = new ArrayList<>();
-		path.add(node.state);
-		// work backwards from end to front
-		while (node.parent != null) {
+		nodeToPath(node, path);
+		return path;
+	}
+
+	// fills *path* (cleared first) so callers can reuse one list for many paths
+	public static <T> void nodeToPath(Node<T> node, List<? super T> path) {
+		path.clear();
+		// work backwards from end to front, then flip, rather than adding at the
+		// front each time which would be quadratic
+		for (; node != null; node = node.parent) {
+			path.add(node.state);
+		}
+		Collections.reverse(path);
+	}
+
+	// the states of the path lazily, from the goal back to the start
+	public static <T> Stream<T> pathFromGoal(Node<T> node) {
+		return Stream.iterate(node, n -> n != null, n -> n.parent).map(n -> n.state);
+	}
+
+	// the number of moves in the path, without building it
+	public static <T> int pathLength(Node<T> node) {
+		int length = 0;
+		for (; node.parent != null; node = node.parent) {
+			length++;
+		}
+		return length;
+	}
+
+	// the state right after the start, or the start itself if it was the goal
+	public static <T> T firstStep(Node<T> node) {
+		while (node.parent != null && node.parent.parent != null) {
 			node = node.parent;
-			path.add(0, node.state); // add to front
 		}
-		return path;
+		return node.state;
 	}
 
 	public static <T> Node<T> bfs(T initial, Predicate<T> goalTest,
 			Function<T, List<T>> successors) {
+		return bfs(initial, goalTest, successors, SearchStats.DISABLED);
+	}
+
+	public static <T> Node<T> bfs(T initial, Predicate<T> goalTest,
+			Function<T, List<T>> successors, SearchStats stats) {
+		stats.startPhase("bfs");
 		// frontier is where we've yet to go
 		Queue<Node<T>> frontier = new LinkedList<>();
 		frontier.offer(new Node<>(initial, null));
@@ -136,37 +370,136 @@ public class GenericSearch {
 		Set<T> explored = new HashSet<>();
 		explored.add(initial);
 
-		// keep going while there is more to explore
-		while (!frontier.isEmpty()) {
-			Node<T> currentNode = frontier.poll();
-			T currentState = currentNode.state;
-			// if we found the goal, we're done
-			if (goalTest.test(currentState)) {
-				return currentNode;
-			}
-			// check where we can go next and haven't explored
-			for (T child : successors.apply(currentState)) {
-				if (explored.contains(child)) {
-					continue; // skip children we already explored
+		try {
+			// keep going while there is more to explore
+			while (!frontier.isEmpty()) {
+				Node<T> currentNode = frontier.poll();
+				T currentState = currentNode.state;
+				// if we found the goal, we're done
+				if (goalTest.test(currentState)) {
+					return currentNode;
 				}
-				explored.add(child);
-				frontier.offer(new Node<>(child, currentNode));
+				stats.expanded();
+				// check where we can go next and haven't explored
+				for (T child : successors.apply(currentState)) {
+					stats.generated();
+					if (explored.contains(child)) {
+						stats.duplicate();
+						continue; // skip children we already explored
+					}
+					explored.add(child);
+					frontier.offer(new Node<>(child, currentNode));
+				}
+				stats.frontierSize(frontier.size());
+				stats.exploredSize(explored.size());
 			}
+			return null; // went through everything and never found goal
+		} finally {
+			stats.endPhase("bfs");
+		}
+	}
+
+	// how astar orders frontier nodes that have the same cost + heuristic
+	public enum TieBreak {
+		NONE, // whatever order the priority queue happens to produce
+		HIGHER_COST, // prefer the node furthest from the start (closest to the goal)
+		LOWER_COST // prefer the node closest to the start
+	}
+
+	private static <T> Comparator<Node<T>> frontierOrder(TieBreak tieBreak) {
+		Comparator<Node<T>> byTotal = (n1, n2) -> Double.compare(n1.cost + n1.heuristic,
+				n2.cost + n2.heuristic);
+		switch (tieBreak) {
+		case HIGHER_COST:
+			return byTotal.thenComparing((n1, n2) -> Double.compare(n2.cost, n1.cost));
+		case LOWER_COST:
+			return byTotal.thenComparing((n1, n2) -> Double.compare(n1.cost, n2.cost));
+		default:
+			return byTotal;
 		}
-		return null; // went through everything and never found goal
 	}
 
 	public static <T> Node<T> astar(T initial, Predicate<T> goalTest,
 			Function<T, List<T>> successors, ToDoubleFunction<T> heuristic) {
+		return astar(initial, goalTest, successors, heuristic, SearchStats.DISABLED);
+	}
+
+	public static <T> Node<T> astar(T initial, Predicate<T> goalTest,
+			Function<T, List<T>> successors, ToDoubleFunction<T> heuristic, SearchStats stats) {
+		// 1 here assumes a grid, use the overload below for more sophisticated apps
+		return astar(initial, goalTest, successors, heuristic, (from, to) -> 1.0, TieBreak.NONE, stats);
+	}
+
+	public static <T> Node<T> astar(T initial, Predicate<T> goalTest,
+			Function<T, List<T>> successors, ToDoubleFunction<T> heuristic,
+			ToDoubleBiFunction<T, T> cost, TieBreak tieBreak) {
+		return astar(initial, goalTest, successors, heuristic, cost, tieBreak, SearchStats.DISABLED);
+	}
+
+	// *cost* gives the cost of stepping from its first argument to its second
+	public static <T> Node<T> astar(T initial, Predicate<T> goalTest,
+			Function<T, List<T>> successors, ToDoubleFunction<T> heuristic,
+			ToDoubleBiFunction<T, T> cost, TieBreak tieBreak, SearchStats stats) {
+		stats.startPhase("astar");
 		// frontier is where we've yet to go
-		PriorityQueue<Node<T>> frontier = new PriorityQueue<>();
+		PriorityQueue<Node<T>> frontier = new PriorityQueue<>(frontierOrder(tieBreak));
 		frontier.offer(new Node<>(initial, null, 0.0, heuristic.applyAsDouble(initial)));
 		// explored is where we've been
 		Map<T, Double> explored = new HashMap<>();
 		explored.put(initial, 0.0);
+		try {
+			// keep going while there is more to explore
+			while (!frontier.isEmpty()) {
+				Node<T> currentNode = frontier.poll();
+				T currentState = currentNode.state;
+				// if we found the goal, we're done
+				if (goalTest.test(currentState)) {
+					return currentNode;
+				}
+				stats.expanded();
+				// check where we can go next and haven't explored
+				for (T child : successors.apply(currentState)) {
+					stats.generated();
+					double newCost = currentNode.cost + cost.applyAsDouble(currentState, child);
+					if (!explored.containsKey(child) || explored.get(child) > newCost) {
+						explored.put(child, newCost);
+						frontier.offer(new Node<>(child, currentNode, newCost, heuristic.applyAsDouble(child)));
+					} else {
+						stats.duplicate();
+					}
+				}
+				stats.frontierSize(frontier.size());
+				stats.exploredSize(explored.size());
+			}
+
+			return null; // went through everything and never found goal
+		} finally {
+			stats.endPhase("astar");
+		}
+	}
+
+	// astar with an IndexedMinHeap frontier: each state gets one Node and one
+	// heap slot, and a cheaper path updates both in place (decrease-key)
+	public static <T> Node<T> astarIndexed(T initial, Predicate<T> goalTest,
+			Function<T, List<T>> successors, ToDoubleFunction<T> heuristic) {
+		return astarIndexed(initial, goalTest, successors, heuristic, (from, to) -> 1.0);
+	}
+
+	public static <T> Node<T> astarIndexed(T initial, Predicate<T> goalTest,
+			Function<T, List<T>> successors, ToDoubleFunction<T> heuristic,
+			ToDoubleBiFunction<T, T> cost) {
+		// every state we have seen gets a dense id, its Node lives at that index
+		Map<T, Integer> ids = new HashMap<>();
+		List<Node<T>> nodes = new ArrayList<>();
+		// frontier is where we've yet to go
+		IndexedMinHeap frontier = new IndexedMinHeap(16);
+		Node<T> initialNode = new Node<>(initial, null, 0.0, heuristic.applyAsDouble(initial));
+		ids.put(initial, 0);
+		nodes.add(initialNode);
+		frontier.insert(0, initialNode.cost + initialNode.heuristic);
 		// keep going while there is more to explore
 		while (!frontier.isEmpty()) {
-			Node<T> currentNode = frontier.poll();
+			Node<T> currentNode = nodes.get(frontier.poll());
 			T currentState = currentNode.state;
 			// if we found the goal, we're done
 			if (goalTest.test(currentState)) {
@@ -174,22 +507,500 @@ public class GenericSearch {
 			}
 			// check where we can go next and haven't explored
 			for (T child : successors.apply(currentState)) {
-				// 1 here assumes a grid, need a cost function for more sophisticated apps
-				double newCost = currentNode.cost + 1;
-				if (!explored.containsKey(child) || explored.get(child) > newCost) {
-					explored.put(child, newCost);
-					frontier.offer(new Node<>(child, currentNode, newCost, heuristic.applyAsDouble(child)));
+				double newCost = currentNode.cost + cost.applyAsDouble(currentState, child);
+				Integer id = ids.get(child);
+				if (id == null) {
+					Node<T> childNode = new Node<>(child, currentNode, newCost, heuristic.applyAsDouble(child));
+					id = nodes.size();
+					ids.put(child, id);
+					nodes.add(childNode);
+					frontier.insert(id, newCost + childNode.heuristic);
+				} else {
+					Node<T> childNode = nodes.get(id);
+					if (childNode.cost > newCost) {
+						// found a cheaper way here, reopen it if it was already expanded
+						childNode.parent = currentNode;
+						childNode.cost = newCost;
+						frontier.insertOrDecrease(id, newCost + childNode.heuristic);
+					}
+				}
+			}
+		}
+
+		return null; // went through everything and never found goal
+	}
+
+	// Glue a forward path ending at the meeting state to a backward path (whose
+	// parents lead towards the goal) starting at the same state, giving a single
+	// chain of Nodes from initial to goal that nodeToPath can walk
+	private static <T> Node<T> joinPaths(Node<T> forward, Node<T> backward) {
+		Node<T> current = forward;
+		for (Node<T> next = backward.parent; next != null; backward = next, next = next.parent) {
+			double stepCost = backward.cost - next.cost;
+			current = new Node<>(next.state, current, current.cost + stepCost, 0.0);
+		}
+		return current;
+	}
+
+	// for graphs where every move can be undone, so successors are also predecessors
+	public static <T> Node<T> bidirectionalBfs(T initial, T goal,
+			Function<T, List<T>> successors) {
+		return bidirectionalBfs(initial, goal, successors, successors);
+	}
+
+	// search forward from initial and backward from goal one whole level at a time,
+	// always growing the smaller frontier, until the two meet
+	public static <T> Node<T> bidirectionalBfs(T initial, T goal,
+			Function<T, List<T>> successors, Function<T, List<T>> predecessors) {
+		// node costs hold the depth from each side's root
+		Map<T, Node<T>> forwardExplored = new HashMap<>();
+		Map<T, Node<T>> backwardExplored = new HashMap<>();
+		List<Node<T>> forwardFrontier = new ArrayList<>();
+		List<Node<T>> backwardFrontier = new ArrayList<>();
+		Node<T> initialNode = new Node<>(initial, null, 0.0, 0.0);
+		Node<T> goalNode = new Node<>(goal, null, 0.0, 0.0);
+		if (initial.equals(goal)) {
+			return initialNode;
+		}
+		forwardExplored.put(initial, initialNode);
+		forwardFrontier.add(initialNode);
+		backwardExplored.put(goal, goalNode);
+		backwardFrontier.add(goalNode);
+
+		while (!forwardFrontier.isEmpty() && !backwardFrontier.isEmpty()) {
+			boolean forward = forwardFrontier.size() <= backwardFrontier.size();
+			List<Node<T>> frontier = forward ? forwardFrontier : backwardFrontier;
+			Map<T, Node<T>> explored = forward ? forwardExplored : backwardExplored;
+			Map<T, Node<T>> otherExplored = forward ? backwardExplored : forwardExplored;
+			Function<T, List<T>> expand = forward ? successors : predecessors;
+			List<Node<T>> nextFrontier = new ArrayList<>();
+			// the best meeting is only known once the whole level has been expanded
+			Node<T> bestMine = null;
+			Node<T> bestTheirs = null;
+			for (Node<T> currentNode : frontier) {
+				for (T child : expand.apply(currentNode.state)) {
+					if (explored.containsKey(child)) {
+						continue; // skip children we already explored
+					}
+					Node<T> childNode = new Node<>(child, currentNode, currentNode.cost + 1, 0.0);
+					explored.put(child, childNode);
+					nextFrontier.add(childNode);
+					Node<T> theirs = otherExplored.get(child);
+					if (theirs != null && (bestMine == null
+							|| childNode.cost + theirs.cost < bestMine.cost + bestTheirs.cost)) {
+						bestMine = childNode;
+						bestTheirs = theirs;
+					}
+				}
+			}
+			if (bestMine != null) {
+				return forward ? joinPaths(bestMine, bestTheirs) : joinPaths(bestTheirs, bestMine);
+			}
+			if (forward) {
+				forwardFrontier = nextFrontier;
+			} else {
+				backwardFrontier = nextFrontier;
+			}
+		}
+		return null; // one side ran out of states, so they can never meet
+	}
+
+	// for graphs where every move can be undone and costs the same both ways
+	public static <T> Node<T> bidirectionalAstar(T initial, T goal,
+			Function<T, List<T>> successors, ToDoubleBiFunction<T, T> heuristic) {
+		return bidirectionalAstar(initial, goal, successors, successors, heuristic, (from, to) -> 1.0);
+	}
+
+	// *heuristic* estimates the cost from its first argument to its second, and
+	// must be consistent for the returned path to be optimal
+	public static <T> Node<T> bidirectionalAstar(T initial, T goal,
+			Function<T, List<T>> successors, Function<T, List<T>> predecessors,
+			ToDoubleBiFunction<T, T> heuristic, ToDoubleBiFunction<T, T> cost) {
+		// the best known Node for each state, older Nodes left in a frontier are stale
+		Map<T, Node<T>> forwardBest = new HashMap<>();
+		Map<T, Node<T>> backwardBest = new HashMap<>();
+		Comparator<Node<T>> order = frontierOrder(TieBreak.NONE);
+		PriorityQueue<Node<T>> forwardFrontier = new PriorityQueue<>(order);
+		PriorityQueue<Node<T>> backwardFrontier = new PriorityQueue<>(order);
+		Node<T> initialNode = new Node<>(initial, null, 0.0, heuristic.applyAsDouble(initial, goal));
+		Node<T> goalNode = new Node<>(goal, null, 0.0, heuristic.applyAsDouble(initial, goal));
+		forwardBest.put(initial, initialNode);
+		forwardFrontier.offer(initialNode);
+		backwardBest.put(goal, goalNode);
+		backwardFrontier.offer(goalNode);
+		// the cheapest complete path seen so far
+		double bestCost = initial.equals(goal) ? 0.0 : Double.POSITIVE_INFINITY;
+		Node<T> bestForward = initial.equals(goal) ? initialNode : null;
+		Node<T> bestBackward = initial.equals(goal) ? goalNode : null;
+
+		while (!forwardFrontier.isEmpty() && !backwardFrontier.isEmpty()) {
+			// every undiscovered path costs at least the smallest f on either side
+			Node<T> forwardTop = forwardFrontier.peek();
+			Node<T> backwardTop = backwardFrontier.peek();
+			if (Math.max(forwardTop.cost + forwardTop.heuristic,
+					backwardTop.cost + backwardTop.heuristic) >= bestCost) {
+				break;
+			}
+			boolean forward = forwardFrontier.size() <= backwardFrontier.size();
+			PriorityQueue<Node<T>> frontier = forward ? forwardFrontier : backwardFrontier;
+			Map<T, Node<T>> best = forward ? forwardBest : backwardBest;
+			Map<T, Node<T>> otherBest = forward ? backwardBest : forwardBest;
+			Node<T> currentNode = frontier.poll();
+			T currentState = currentNode.state;
+			if (best.get(currentState) != currentNode) {
+				continue; // a cheaper Node for this state was found after this one
+			}
+			for (T child : (forward ? successors : predecessors).apply(currentState)) {
+				double newCost = currentNode.cost + (forward
+						? cost.applyAsDouble(currentState, child)
+						: cost.applyAsDouble(child, currentState));
+				Node<T> known = best.get(child);
+				if (known != null && known.cost <= newCost) {
+					continue;
+				}
+				double estimate = forward ? heuristic.applyAsDouble(child, goal)
+						: heuristic.applyAsDouble(initial, child);
+				Node<T> childNode = new Node<>(child, currentNode, newCost, estimate);
+				best.put(child, childNode);
+				frontier.offer(childNode);
+				Node<T> theirs = otherBest.get(child);
+				if (theirs != null && newCost + theirs.cost < bestCost) {
+					bestCost = newCost + theirs.cost;
+					bestForward = forward ? childNode : theirs;
+					bestBackward = forward ? theirs : childNode;
 				}
 			}
 		}
+		return bestForward == null ? null : joinPaths(bestForward, bestBackward);
+	}
+
+	public static <T> Node<T> parallelBfs(T initial, Predicate<T> goalTest,
+			Function<T, List<T>> successors) {
+		return parallelBfs(initial, goalTest, successors, ForkJoinPool.commonPool());
+	}
 
+	// level-synchronous bfs: every state in a level is tested and expanded in
+	// parallel on *pool* before the next level starts, so the first level holding
+	// a goal still gives a shortest path. Only its length is fixed: a state
+	// reachable from two states of a level goes to whichever thread adds it to
+	// explored first, so the goal and path found can change from run to run.
+	// *successors* and *goalTest* must be safe to call from several threads at once.
+	public static <T> Node<T> parallelBfs(T initial, Predicate<T> goalTest,
+			Function<T, List<T>> successors, ForkJoinPool pool) {
+		// explored is where we've been, the first thread to add a state owns it
+		Set<T> explored = ConcurrentHashMap.newKeySet();
+		explored.add(initial);
+		// frontier is the current level
+		List<Node<T>> frontier = List.of(new Node<>(initial, null));
+
+		while (!frontier.isEmpty()) {
+			List<Node<T>> level = frontier;
+			// the first goal in level order
+			Optional<Node<T>> goal = pool.submit(() -> level.parallelStream()
+					.filter(node -> goalTest.test(node.state))
+					.findFirst()).join();
+			if (goal.isPresent()) {
+				return goal.get();
+			}
+			frontier = pool.submit(() -> level.parallelStream()
+					.flatMap(node -> successors.apply(node.state).stream()
+							.filter(explored::add) // skip children we already explored
+							.map(child -> new Node<>(child, node)))
+					.collect(Collectors.toList())).join();
+		}
 		return null; // went through everything and never found goal
 	}
 
+	// A bounded least-recently-used map from state to the cheapest cost it has been
+	// reached with, or null when *size* is 0 so no cache is kept
+	private static <T> Map<T, Double> transpositionCache(int size) {
+		if (size <= 0) {
+			return null;
+		}
+		return new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<T, Double> eldest) {
+				return size() > size;
+			}
+		};
+	}
+
+	// Depth-first search that never goes past cost + heuristic *bound*. Only the
+	// current path is kept (plus *cache*, if any), so memory grows with depth and
+	// not with the number of states seen. The smallest cost + heuristic that went
+	// over the bound is left in nextBound[0] for the caller's next iteration.
+	private static <T> Node<T> boundedDfs(T initial, Predicate<T> goalTest,
+			Function<T, List<T>> successors, ToDoubleFunction<T> heuristic,
+			ToDoubleBiFunction<T, T> cost, double bound, Map<T, Double> cache, double[] nextBound) {
+		nextBound[0] = Double.POSITIVE_INFINITY;
+		Node<T> root = new Node<>(initial, null, 0.0, heuristic.applyAsDouble(initial));
+		if (root.heuristic > bound) {
+			nextBound[0] = root.heuristic;
+			return null;
+		}
+		if (goalTest.test(initial)) {
+			return root;
+		}
+		// the current path, each with the children it still has to try
+		Deque<Node<T>> path = new ArrayDeque<>();
+		Deque<Iterator<T>> untried = new ArrayDeque<>();
+		Set<T> onPath = new HashSet<>();
+		path.push(root);
+		untried.push(successors.apply(initial).iterator());
+		onPath.add(initial);
+
+		while (!path.isEmpty()) {
+			Node<T> currentNode = path.peek();
+			Iterator<T> children = untried.peek();
+			if (!children.hasNext()) { // backtrack
+				path.pop();
+				untried.pop();
+				onPath.remove(currentNode.state);
+				continue;
+			}
+			T child = children.next();
+			if (onPath.contains(child)) {
+				continue; // never walk in a cycle
+			}
+			double newCost = currentNode.cost + cost.applyAsDouble(currentNode.state, child);
+			double estimate = heuristic.applyAsDouble(child);
+			if (newCost + estimate > bound) {
+				nextBound[0] = Math.min(nextBound[0], newCost + estimate);
+				continue;
+			}
+			if (cache != null) {
+				// reached at least as cheaply before, so its subtree was already searched
+				Double seen = cache.get(child);
+				if (seen != null && seen <= newCost) {
+					continue;
+				}
+				cache.put(child, newCost);
+			}
+			Node<T> childNode = new Node<>(child, currentNode, newCost, estimate);
+			if (goalTest.test(child)) {
+				return childNode;
+			}
+			path.push(childNode);
+			untried.push(successors.apply(child).iterator());
+			onPath.add(child);
+		}
+		return null;
+	}
+
+	public static <T> Node<T> idaStar(T initial, Predicate<T> goalTest,
+			Function<T, List<T>> successors, ToDoubleFunction<T> heuristic) {
+		return idaStar(initial, goalTest, successors, heuristic, (from, to) -> 1.0, 0);
+	}
+
+	// iterative-deepening A*: repeated bounded depth-first searches, raising the
+	// bound each time to the smallest cost + heuristic that exceeded it. Optimal
+	// for an admissible heuristic. *cacheSize* states are remembered per iteration
+	// to cut down on re-expanding transpositions, 0 for none.
+	public static <T> Node<T> idaStar(T initial, Predicate<T> goalTest,
+			Function<T, List<T>> successors, ToDoubleFunction<T> heuristic,
+			ToDoubleBiFunction<T, T> cost, int cacheSize) {
+		double bound = heuristic.applyAsDouble(initial);
+		double[] nextBound = new double[1];
+		while (true) {
+			Map<T, Double> cache = transpositionCache(cacheSize);
+			Node<T> result = boundedDfs(initial, goalTest, successors, heuristic, cost, bound, cache, nextBound);
+			if (result != null) {
+				return result;
+			}
+			if (nextBound[0] == Double.POSITIVE_INFINITY) {
+				return null; // nothing was cut off, so there is nowhere left to look
+			}
+			bound = nextBound[0];
+		}
+	}
+
+	public static <T> Node<T> iddfs(T initial, Predicate<T> goalTest,
+			Function<T, List<T>> successors, int maxDepth) {
+		return iddfs(initial, goalTest, successors, maxDepth, 0);
+	}
+
+	// iterative-deepening dfs: depth-limited searches to depth 0, 1, 2... up to
+	// *maxDepth*, giving bfs's shortest paths with dfs's memory use
+	public static <T> Node<T> iddfs(T initial, Predicate<T> goalTest,
+			Function<T, List<T>> successors, int maxDepth, int cacheSize) {
+		double[] nextBound = new double[1];
+		for (int depth = 0; depth <= maxDepth; depth++) {
+			Map<T, Double> cache = transpositionCache(cacheSize);
+			Node<T> result = boundedDfs(initial, goalTest, successors, state -> 0.0,
+					(from, to) -> 1.0, depth, cache, nextBound);
+			if (result != null) {
+				return result;
+			}
+			if (nextBound[0] == Double.POSITIVE_INFINITY) {
+				return null; // nothing was cut off, so there is nowhere left to look
+			}
+		}
+		return null; // not within maxDepth
+	}
+
+	// Every node in a level costs the same with unit steps, so this beam is
+	// greedy by the heuristic alone, with ties in no particular order
+	public static <T> Node<T> beamSearch(T initial, Predicate<T> goalTest,
+			Function<T, List<T>> successors, ToDoubleFunction<T> heuristic, int beamWidth) {
+		return beamSearch(initial, goalTest, successors, heuristic, (from, to) -> 1.0, beamWidth);
+	}
+
+	// Breadth-first, but each level keeps only the *beamWidth* nodes with the
+	// lowest cost + heuristic, where *cost* gives the cost of stepping from its
+	// first argument to its second. Ties go to the node with the higher cost so
+	// far, as in astar with TieBreak.HIGHER_COST. Fast and small, but neither
+	// complete nor optimal.
+	public static <T> Node<T> beamSearch(T initial, Predicate<T> goalTest,
+			Function<T, List<T>> successors, ToDoubleFunction<T> heuristic,
+			ToDoubleBiFunction<T, T> cost, int beamWidth) {
+		if (beamWidth < 1) {
+			throw new IllegalArgumentException("beamWidth must be >= 1");
+		}
+		Comparator<Node<T>> order = frontierOrder(TieBreak.HIGHER_COST);
+		// explored is where we've been
+		Set<T> explored = new HashSet<>();
+		explored.add(initial);
+		// frontier is the current beam
+		List<Node<T>> frontier = List.of(new Node<>(initial, null, 0.0, heuristic.applyAsDouble(initial)));
+
+		while (!frontier.isEmpty()) {
+			// keep the best beamWidth children of the whole beam
+			PriorityQueue<Node<T>> nextLevel = new PriorityQueue<>(order.reversed());
+			for (Node<T> currentNode : frontier) {
+				if (goalTest.test(currentNode.state)) {
+					return currentNode;
+				}
+				for (T child : successors.apply(currentNode.state)) {
+					if (explored.contains(child)) {
+						continue; // skip children we already explored
+					}
+					explored.add(child);
+					nextLevel.offer(new Node<>(child, currentNode,
+							currentNode.cost + cost.applyAsDouble(currentNode.state, child),
+							heuristic.applyAsDouble(child)));
+					if (nextLevel.size() > beamWidth) {
+						nextLevel.poll(); // drop the worst
+					}
+				}
+			}
+			List<Node<T>> beam = new ArrayList<>(nextLevel);
+			beam.sort(order);
+			frontier = beam;
+		}
+		return null; // the beam ran dry without finding the goal
+	}
+
+	// astar with the heuristic inflated by *weight* (>= 1): usually far fewer
+	// expansions, and the path costs at most *weight* times the optimal one
+	public static <T> Node<T> weightedAstar(T initial, Predicate<T> goalTest,
+			Function<T, List<T>> successors, ToDoubleFunction<T> heuristic, double weight) {
+		return astar(initial, goalTest, successors, state -> weight * heuristic.applyAsDouble(state),
+				(from, to) -> 1.0, TieBreak.HIGHER_COST);
+	}
+
+	public static <T> Node<T> anytimeAstar(T initial, Predicate<T> goalTest,
+			Function<T, List<T>> successors, ToDoubleFunction<T> heuristic, double initialWeight,
+			Duration timeLimit, BiConsumer<Node<T>, Double> onSolution) {
+		return anytimeAstar(initial, goalTest, successors, heuristic, (from, to) -> 1.0, initialWeight,
+				0.5, timeLimit, onSolution);
+	}
+
+	// Anytime repairing A* (ARA*): a weighted astar finds a first path quickly,
+	// then the weight is lowered by *weightStep* at a time down to 1, each round
+	// reusing the previous round's work. Every cheaper path found is passed to
+	// *onSolution* with the current bound on how many times optimal it may be.
+	// Returns the best path found once the weight reaches 1 (so it is optimal)
+	// or once *timeLimit* is up, whichever comes first.
+	public static <T> Node<T> anytimeAstar(T initial, Predicate<T> goalTest,
+			Function<T, List<T>> successors, ToDoubleFunction<T> heuristic,
+			ToDoubleBiFunction<T, T> cost, double initialWeight, double weightStep,
+			Duration timeLimit, BiConsumer<Node<T>, Double> onSolution) {
+		if (initialWeight < 1.0 || weightStep <= 0.0) {
+			throw new IllegalArgumentException("initialWeight must be >= 1 and weightStep > 0");
+		}
+		long deadline = System.nanoTime() + timeLimit.toNanos();
+		// the cheapest known Node for each state, older Nodes left in open are stale
+		Map<T, Node<T>> best = new HashMap<>();
+		Set<T> closed = new HashSet<>();
+		// states made cheaper after being closed this round, reopened next round
+		Set<T> inconsistent = new HashSet<>();
+		Node<T> initialNode = new Node<>(initial, null, 0.0, heuristic.applyAsDouble(initial));
+		best.put(initial, initialNode);
+		Node<T> bestGoal = null;
+		double weight = initialWeight;
+
+		List<Node<T>> open = new ArrayList<>(List.of(initialNode));
+		while (true) {
+			double w = weight;
+			PriorityQueue<Node<T>> frontier = new PriorityQueue<>(
+					(n1, n2) -> Double.compare(n1.cost + w * n1.heuristic, n2.cost + w * n2.heuristic));
+			frontier.addAll(open);
+			// improve the path until nothing left in the frontier could beat it
+			while (!frontier.isEmpty()) {
+				Node<T> currentNode = frontier.peek();
+				if (bestGoal != null && bestGoal.cost <= currentNode.cost + w * currentNode.heuristic) {
+					break;
+				}
+				if (System.nanoTime() > deadline) {
+					return bestGoal;
+				}
+				frontier.poll();
+				T currentState = currentNode.state;
+				if (best.get(currentState) != currentNode || closed.contains(currentState)) {
+					continue; // stale
+				}
+				closed.add(currentState);
+				if (goalTest.test(currentState)) {
+					if (bestGoal == null || currentNode.cost < bestGoal.cost) {
+						bestGoal = currentNode;
+						onSolution.accept(bestGoal, w);
+					}
+					continue;
+				}
+				for (T child : successors.apply(currentState)) {
+					double newCost = currentNode.cost + cost.applyAsDouble(currentState, child);
+					Node<T> known = best.get(child);
+					if (known != null && known.cost <= newCost) {
+						continue;
+					}
+					Node<T> childNode = new Node<>(child, currentNode, newCost, heuristic.applyAsDouble(child));
+					best.put(child, childNode);
+					if (closed.contains(child)) {
+						inconsistent.add(child);
+					} else {
+						frontier.offer(childNode);
+					}
+				}
+			}
+			if (weight <= 1.0 || (frontier.isEmpty() && inconsistent.isEmpty())) {
+				return bestGoal; // optimal now, or nothing left to improve
+			}
+			// next round: a smaller weight, reopening everything still pending
+			weight = Math.max(1.0, weight - weightStep);
+			open = new ArrayList<>();
+			for (Node<T> node : frontier) {
+				if (best.get(node.state) == node && !closed.contains(node.state)) {
+					open.add(node);
+				}
+			}
+			for (T state : inconsistent) {
+				open.add(best.get(state));
+			}
+			inconsistent.clear();
+			closed.clear();
+		}
+	}
+
 	public static void main(String[] args) {
 		System.out.println(linearContains(List.of(1, 5, 15, 15, 15, 15, 20), 5)); // true
 		System.out.println(binaryContains(List.of("a", "d", "e", "f", "z"), "f")); // true
 		System.out.println(binaryContains(List.of("john", "mark", "ronald", "sarah"), "sheila")); // false
+		System.out.println(binaryContains(new int[] { 1, 5, 15, 20 }, 15)); // true
+		int[] ids = { 2, 3, 5, 7, 11, 13, 17, 19 };
+		System.out.println(Arrays.toString(binaryContainsAll(ids, new int[] { 1, 5, 6, 19 }))); // [false, true, false, true]
+		System.out.println(eytzingerContains(eytzinger(ids), 13)); // true
 	}
 
 }
@@ -0,0 +1,105 @@
+// Grid.java
+// From Classic Computer Science Problems in Java Chapter 2
+// Copyright 2020 David Kopec
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package chapter2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import chapter2.Maze.MazeLocation;
+
+// A rectangle of open and blocked cells, numbered row * columns + column for
+// use with IntSearch. Maze and MappedMaze store their cells differently but
+// share the moves and the numbering from here, so the two can't drift apart.
+public interface Grid {
+
+	int getRows();
+
+	int getColumns();
+
+	MazeLocation getGoal();
+
+	boolean isBlocked(int id);
+
+	default int getCellCount() {
+		return getRows() * getColumns();
+	}
+
+	default int toId(MazeLocation ml) {
+		return ml.row * getColumns() + ml.column;
+	}
+
+	default MazeLocation fromId(int id) {
+		return new MazeLocation(id / getColumns(), id % getColumns());
+	}
+
+	default List<MazeLocation> successors(MazeLocation ml) {
+		int rows = getRows();
+		int columns = getColumns();
+		List<MazeLocation> locations = new ArrayList<>();
+		int id = toId(ml);
+		if (ml.row + 1 < rows && !isBlocked(id + columns)) {
+			locations.add(new MazeLocation(ml.row + 1, ml.column));
+		}
+		if (ml.row - 1 >= 0 && !isBlocked(id - columns)) {
+			locations.add(new MazeLocation(ml.row - 1, ml.column));
+		}
+		if (ml.column + 1 < columns && !isBlocked(id + 1)) {
+			locations.add(new MazeLocation(ml.row, ml.column + 1));
+		}
+		if (ml.column - 1 >= 0 && !isBlocked(id - 1)) {
+			locations.add(new MazeLocation(ml.row, ml.column - 1));
+		}
+		return locations;
+	}
+
+	// same order as successors(MazeLocation), written into *buffer* (length >= 4)
+	// without allocating anything
+	default int successors(int id, int[] buffer) {
+		int rows = getRows();
+		int columns = getColumns();
+		int row = id / columns;
+		int column = id - row * columns;
+		int count = 0;
+		if (row + 1 < rows && !isBlocked(id + columns)) {
+			buffer[count++] = id + columns;
+		}
+		if (row - 1 >= 0 && !isBlocked(id - columns)) {
+			buffer[count++] = id - columns;
+		}
+		if (column + 1 < columns && !isBlocked(id + 1)) {
+			buffer[count++] = id + 1;
+		}
+		if (column - 1 >= 0 && !isBlocked(id - 1)) {
+			buffer[count++] = id - 1;
+		}
+		return count;
+	}
+
+	default double manhattanDistance(MazeLocation ml) {
+		MazeLocation goal = getGoal();
+		int xdist = Math.abs(ml.column - goal.column);
+		int ydist = Math.abs(ml.row - goal.row);
+		return (xdist + ydist);
+	}
+
+	default double manhattanDistance(int id) {
+		MazeLocation goal = getGoal();
+		int xdist = Math.abs(id % getColumns() - goal.column);
+		int ydist = Math.abs(id / getColumns() - goal.row);
+		return (xdist + ydist);
+	}
+}
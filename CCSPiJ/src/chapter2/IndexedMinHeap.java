@@ -0,0 +1,202 @@
+// IndexedMinHeap.java
+// From Classic Computer Science Problems in Java Chapter 2
+// Copyright 2020 David Kopec
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package chapter2;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+// A d-ary min heap of int ids with primitive double priorities.
+// Every id is in the heap at most once, so lowering the priority of an
+// id already in the heap moves it in place instead of adding a duplicate.
+public class IndexedMinHeap {
+	private static final int ABSENT = -1;
+
+	private final int arity;
+	private int[] heap; // ids in heap order
+	private double[] priorities; // indexed by id
+	private int[] positions; // indexed by id, ABSENT when not in the heap
+	private int size;
+
+	public IndexedMinHeap(int capacity, int arity) {
+		if (arity < 2) {
+			throw new IllegalArgumentException("arity must be >= 2");
+		}
+		this.arity = arity;
+		capacity = Math.max(capacity, 1);
+		heap = new int[capacity];
+		priorities = new double[capacity];
+		positions = new int[capacity];
+		Arrays.fill(positions, ABSENT);
+	}
+
+	public IndexedMinHeap(int capacity) {
+		this(capacity, 4);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean contains(int id) {
+		return id < positions.length && positions[id] != ABSENT;
+	}
+
+	public double priorityOf(int id) {
+		return priorities[id];
+	}
+
+	// remove everything, touching only the ids currently in the heap
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			positions[heap[i]] = ABSENT;
+		}
+		size = 0;
+	}
+
+	public void insert(int id, double priority) {
+		if (contains(id)) {
+			throw new IllegalArgumentException("id " + id + " is already in the heap");
+		}
+		ensureCapacity(id + 1);
+		priorities[id] = priority;
+		positions[id] = size;
+		heap[size] = id;
+		siftUp(size++);
+	}
+
+	public void decreaseKey(int id, double priority) {
+		if (!contains(id)) {
+			throw new NoSuchElementException("id " + id + " is not in the heap");
+		}
+		if (priority > priorities[id]) {
+			throw new IllegalArgumentException("new priority is greater than the current one");
+		}
+		priorities[id] = priority;
+		siftUp(positions[id]);
+	}
+
+	// insert *id*, or lower its priority if it is already present with a higher one
+	// returns true if the heap changed
+	public boolean insertOrDecrease(int id, double priority) {
+		if (!contains(id)) {
+			insert(id, priority);
+			return true;
+		}
+		if (priority < priorities[id]) {
+			decreaseKey(id, priority);
+			return true;
+		}
+		return false;
+	}
+
+	public int peek() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return heap[0];
+	}
+
+	public double peekPriority() {
+		return priorities[peek()];
+	}
+
+	public int poll() {
+		int result = peek();
+		positions[result] = ABSENT;
+		size--;
+		if (size > 0) {
+			heap[0] = heap[size];
+			positions[heap[0]] = 0;
+			siftDown(0);
+		}
+		return result;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= positions.length) {
+			return;
+		}
+		int newCapacity = Math.max(capacity, positions.length * 2);
+		int oldCapacity = positions.length;
+		heap = Arrays.copyOf(heap, newCapacity);
+		priorities = Arrays.copyOf(priorities, newCapacity);
+		positions = Arrays.copyOf(positions, newCapacity);
+		Arrays.fill(positions, oldCapacity, newCapacity, ABSENT);
+	}
+
+	private void siftUp(int index) {
+		int id = heap[index];
+		double priority = priorities[id];
+		while (index > 0) {
+			int parent = (index - 1) / arity;
+			int parentId = heap[parent];
+			if (priorities[parentId] <= priority) {
+				break;
+			}
+			heap[index] = parentId;
+			positions[parentId] = index;
+			index = parent;
+		}
+		heap[index] = id;
+		positions[id] = index;
+	}
+
+	private void siftDown(int index) {
+		int id = heap[index];
+		double priority = priorities[id];
+		while (true) {
+			int first = index * arity + 1;
+			if (first >= size) {
+				break;
+			}
+			// find the smallest child
+			int best = first;
+			int last = Math.min(first + arity, size);
+			for (int child = first + 1; child < last; child++) {
+				if (priorities[heap[child]] < priorities[heap[best]]) {
+					best = child;
+				}
+			}
+			if (priorities[heap[best]] >= priority) {
+				break;
+			}
+			heap[index] = heap[best];
+			positions[heap[index]] = index;
+			index = best;
+		}
+		heap[index] = id;
+		positions[id] = index;
+	}
+
+	public static void main(String[] args) {
+		IndexedMinHeap heap = new IndexedMinHeap(4);
+		heap.insert(0, 5.0);
+		heap.insert(1, 3.0);
+		heap.insert(2, 4.0);
+		heap.insert(7, 6.0); // grows to fit
+		heap.decreaseKey(0, 1.0);
+		while (!heap.isEmpty()) {
+			System.out.print(heap.poll() + " "); // 0 1 2 7
+		}
+		System.out.println();
+	}
+
+}
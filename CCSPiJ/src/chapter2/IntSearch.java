@@ -0,0 +1,340 @@
+// IntSearch.java
+// From Classic Computer Science Problems in Java Chapter 2
+// Copyright 2020 David Kopec
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package chapter2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+
+// A counterpart to GenericSearch for problems whose states can be numbered
+// 0 until numStates. No Node objects are created; parents, costs and the
+// explored set all live in arrays that are reused from one search to the next.
+public class IntSearch {
+
+	public static final int NOT_FOUND = -1;
+
+	// writes the successors of *state* into *buffer* and returns how many there are
+	@FunctionalInterface
+	public interface IntSuccessors {
+		int successors(int state, int[] buffer);
+	}
+
+	private final int numStates;
+	private final int[] parents; // NOT_FOUND for the initial state
+	private final BitSet explored;
+	private final int[] frontier; // used as a stack by dfs and a queue by bfs
+	private final int[] buffer; // successor buffer
+	private double[] costs; // only allocated once astar is used
+	private IndexedMinHeap heap; // astar frontier, also allocated on first use
+	private AtomicLongArray claimed; // parallelBfs explored bits, allocated on first use
+
+	public IntSearch(int numStates, int maxSuccessors) {
+		this.numStates = numStates;
+		parents = new int[numStates];
+		explored = new BitSet(numStates);
+		frontier = new int[numStates];
+		buffer = new int[maxSuccessors];
+	}
+
+	public int getNumStates() {
+		return numStates;
+	}
+
+	public int dfs(int initial, IntPredicate goalTest, IntSuccessors successors) {
+		// frontier is where we've yet to go
+		int top = 0;
+		frontier[top++] = initial;
+		// explored is where we've been
+		explored.clear();
+		explored.set(initial);
+		parents[initial] = NOT_FOUND;
+
+		// keep going while there is more to explore
+		while (top > 0) {
+			int current = frontier[--top];
+			// if we found the goal, we're done
+			if (goalTest.test(current)) {
+				return current;
+			}
+			// check where we can go next and haven't explored
+			int count = successors.successors(current, buffer);
+			for (int i = 0; i < count; i++) {
+				int child = buffer[i];
+				if (explored.get(child)) {
+					continue; // skip children we already explored
+				}
+				explored.set(child);
+				parents[child] = current;
+				frontier[top++] = child;
+			}
+		}
+		return NOT_FOUND; // went through everything and never found goal
+	}
+
+	public int bfs(int initial, IntPredicate goalTest, IntSuccessors successors) {
+		// frontier is where we've yet to go, every state is queued at most once
+		int head = 0;
+		int tail = 0;
+		frontier[tail++] = initial;
+		// explored is where we've been
+		explored.clear();
+		explored.set(initial);
+		parents[initial] = NOT_FOUND;
+
+		// keep going while there is more to explore
+		while (head < tail) {
+			int current = frontier[head++];
+			// if we found the goal, we're done
+			if (goalTest.test(current)) {
+				return current;
+			}
+			// check where we can go next and haven't explored
+			int count = successors.successors(current, buffer);
+			for (int i = 0; i < count; i++) {
+				int child = buffer[i];
+				if (explored.get(child)) {
+					continue; // skip children we already explored
+				}
+				explored.set(child);
+				parents[child] = current;
+				frontier[tail++] = child;
+			}
+		}
+		return NOT_FOUND; // went through everything and never found goal
+	}
+
+	// like GenericSearch.astar, every step costs 1
+	public int astar(int initial, IntPredicate goalTest, IntSuccessors successors,
+			IntToDoubleFunction heuristic) {
+		if (costs == null) {
+			costs = new double[numStates];
+			heap = new IndexedMinHeap(numStates);
+		}
+		// explored marks states with a known cost
+		explored.clear();
+		explored.set(initial);
+		costs[initial] = 0.0;
+		parents[initial] = NOT_FOUND;
+		// frontier is where we've yet to go
+		heap.clear();
+		heap.insert(initial, heuristic.applyAsDouble(initial));
+		// keep going while there is more to explore
+		while (!heap.isEmpty()) {
+			int current = heap.poll();
+			double cost = costs[current];
+			// if we found the goal, we're done
+			if (goalTest.test(current)) {
+				return current;
+			}
+			// check where we can go next and haven't explored
+			int count = successors.successors(current, buffer);
+			for (int i = 0; i < count; i++) {
+				int child = buffer[i];
+				double newCost = cost + 1;
+				if (!explored.get(child)) {
+					explored.set(child);
+					costs[child] = newCost;
+					parents[child] = current;
+					heap.insert(child, newCost + heuristic.applyAsDouble(child));
+				} else if (costs[child] > newCost) {
+					// cheaper path, reopen it if it was already expanded
+					costs[child] = newCost;
+					parents[child] = current;
+					heap.insertOrDecrease(child, newCost + heuristic.applyAsDouble(child));
+				}
+			}
+		}
+		return NOT_FOUND; // went through everything and never found goal
+	}
+
+	public int parallelBfs(int initial, IntPredicate goalTest, IntSuccessors successors) {
+		return parallelBfs(initial, goalTest, successors, ForkJoinPool.commonPool());
+	}
+
+	// level-synchronous bfs: each level of the frontier is split across *pool*,
+	// and states are claimed with a compare-and-set on an atomic bitset so each
+	// is queued exactly once. Levels still finish in order, so the path is as
+	// short as bfs gives. Which goal and which path come back can change from
+	// run to run though: the order within a level and each state's parent go to
+	// whichever task gets there first. *successors* and *goalTest* must be
+	// thread safe.
+	public int parallelBfs(int initial, IntPredicate goalTest, IntSuccessors successors,
+			ForkJoinPool pool) {
+		if (claimed == null) {
+			claimed = new AtomicLongArray((numStates + 63) >>> 6);
+		} else {
+			for (int i = 0; i < claimed.length(); i++) {
+				claimed.set(i, 0L);
+			}
+		}
+		claim(initial);
+		parents[initial] = NOT_FOUND;
+		// the frontier array holds every level back to back, new states are
+		// appended at *tail* in blocks reserved by each task
+		frontier[0] = initial;
+		int head = 0;
+		AtomicInteger tail = new AtomicInteger(1);
+		AtomicInteger goalIndex = new AtomicInteger(Integer.MAX_VALUE);
+
+		while (head < tail.get()) {
+			int levelEnd = tail.get();
+			pool.invoke(new ExpandLevel(head, levelEnd, goalTest, successors, tail, goalIndex));
+			if (goalIndex.get() != Integer.MAX_VALUE) {
+				return frontier[goalIndex.get()];
+			}
+			head = levelEnd;
+		}
+		return NOT_FOUND; // went through everything and never found goal
+	}
+
+	// returns true if this call was the one to mark *state* as explored
+	private boolean claim(int state) {
+		int word = state >>> 6;
+		long bit = 1L << state;
+		long old;
+		do {
+			old = claimed.get(word);
+			if ((old & bit) != 0) {
+				return false;
+			}
+		} while (!claimed.compareAndSet(word, old, old | bit));
+		return true;
+	}
+
+	// tests and expands frontier[start, end), splitting until small enough
+	private class ExpandLevel extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private static final int THRESHOLD = 1024;
+
+		private final int start, end;
+		private final IntPredicate goalTest;
+		private final IntSuccessors successors;
+		private final AtomicInteger tail;
+		private final AtomicInteger goalIndex;
+
+		ExpandLevel(int start, int end, IntPredicate goalTest, IntSuccessors successors,
+				AtomicInteger tail, AtomicInteger goalIndex) {
+			this.start = start;
+			this.end = end;
+			this.goalTest = goalTest;
+			this.successors = successors;
+			this.tail = tail;
+			this.goalIndex = goalIndex;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start > THRESHOLD) {
+				int middle = (start + end) >>> 1;
+				invokeAll(new ExpandLevel(start, middle, goalTest, successors, tail, goalIndex),
+						new ExpandLevel(middle, end, goalTest, successors, tail, goalIndex));
+				return;
+			}
+			int[] localBuffer = new int[buffer.length];
+			int[] children = new int[(end - start) * buffer.length];
+			int count = 0;
+			for (int i = start; i < end; i++) {
+				int current = frontier[i];
+				if (goalTest.test(current)) {
+					// the lowest index, though the order within a level depends on timing
+					goalIndex.accumulateAndGet(i, Math::min);
+					continue;
+				}
+				int successorCount = successors.successors(current, localBuffer);
+				for (int j = 0; j < successorCount; j++) {
+					int child = localBuffer[j];
+					if (claim(child)) {
+						parents[child] = current;
+						children[count++] = child;
+					}
+				}
+			}
+			// reserve a block at the end of the frontier for this task's children
+			int offset = tail.getAndAdd(count);
+			System.arraycopy(children, 0, frontier, offset, count);
+		}
+	}
+
+	// cost of the path to *state* found by the last astar
+	public double costOf(int state) {
+		return costs[state];
+	}
+
+	// the states from the initial state to *goal*, valid until the next search
+	public int[] path(int goal) {
+		if (goal < 0) {
+			throw new IllegalArgumentException("No path to " + goal + ", check for NOT_FOUND first");
+		}
+		int length = 0;
+		for (int state = goal; state != NOT_FOUND; state = parents[state]) {
+			length++;
+		}
+		int[] path = new int[length];
+		for (int state = goal; state != NOT_FOUND; state = parents[state]) {
+			path[--length] = state;
+		}
+		return path;
+	}
+
+	// same shape as GenericSearch.nodeToPath, decoding each id with *decoder*
+	public <T> List<T> path(int goal, IntFunction<T> decoder) {
+		int[] ids = path(goal);
+		List<T> path = new ArrayList<>(ids.length);
+		for (int id : ids) {
+			path.add(decoder.apply(id));
+		}
+		return path;
+	}
+
+	public static void main(String[] args) {
+		// a 5x5 open grid, states numbered row * 5 + column
+		int size = 5;
+		IntSuccessors grid = (state, buffer) -> {
+			int row = state / size;
+			int column = state % size;
+			int count = 0;
+			if (row + 1 < size) {
+				buffer[count++] = state + size;
+			}
+			if (row - 1 >= 0) {
+				buffer[count++] = state - size;
+			}
+			if (column + 1 < size) {
+				buffer[count++] = state + 1;
+			}
+			if (column - 1 >= 0) {
+				buffer[count++] = state - 1;
+			}
+			return count;
+		};
+		IntSearch search = new IntSearch(size * size, 4);
+		int goal = size * size - 1;
+		System.out.println(Arrays.toString(search.path(search.bfs(0, s -> s == goal, grid))));
+		System.out.println(Arrays.toString(search.path(search.parallelBfs(0, s -> s == goal, grid))));
+		System.out.println(Arrays.toString(search.path(search.astar(0, s -> s == goal, grid,
+				s -> Math.abs(s / size - goal / size) + Math.abs(s % size - goal % size)))));
+	}
+
+}
@@ -0,0 +1,222 @@
+// MCProblem.java
+// From Classic Computer Science Problems in Java Chapter 2
+// Copyright 2020 David Kopec
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package chapter2;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+import chapter2.GenericSearch.Node;
+
+// MCState generalized to *n* missionaries and *n* cannibals and a boat that
+// carries up to *capacity* people. A state is a single long:
+// bits 0-30 west bank missionaries, bits 31-61 west bank cannibals, bit 62 set
+// when the boat is on the west bank. States also have a dense int id, so the
+// whole space can be searched with IntSearch and arrays instead of objects.
+public class MCProblem {
+	private static final int COUNT_BITS = 31;
+	private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+	private static final long BOAT_BIT = 1L << 62;
+
+	private final int n;
+	private final int capacity;
+	// every (missionaries, cannibals) boat load, as pairs
+	private final int[] loads;
+
+	public MCProblem(int n, int capacity) {
+		if (n < 1 || capacity < 1) {
+			throw new IllegalArgumentException("n and capacity must be >= 1");
+		}
+		if (2L * (n + 1) * (n + 1) > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("n is too large for int state ids");
+		}
+		this.n = n;
+		this.capacity = capacity;
+		List<Integer> pairs = new ArrayList<>();
+		for (int m = 0; m <= capacity; m++) {
+			for (int c = 0; m + c <= capacity; c++) {
+				if (m + c > 0) {
+					pairs.add(m);
+					pairs.add(c);
+				}
+			}
+		}
+		loads = pairs.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	public static long pack(int westMissionaries, int westCannibals, boolean boatWest) {
+		return westMissionaries | ((long) westCannibals << COUNT_BITS) | (boatWest ? BOAT_BIT : 0);
+	}
+
+	public static int westMissionaries(long state) {
+		return (int) (state & COUNT_MASK);
+	}
+
+	public static int westCannibals(long state) {
+		return (int) ((state >>> COUNT_BITS) & COUNT_MASK);
+	}
+
+	public static boolean boatWest(long state) {
+		return (state & BOAT_BIT) != 0;
+	}
+
+	public long initial() {
+		return pack(n, n, true);
+	}
+
+	public boolean goalTest(long state) {
+		return westMissionaries(state) == 0 && westCannibals(state) == 0 && !boatWest(state);
+	}
+
+	// missionaries may never be outnumbered on a bank where there are any
+	public boolean isLegal(long state) {
+		int wm = westMissionaries(state);
+		int wc = westCannibals(state);
+		int em = n - wm;
+		int ec = n - wc;
+		return (wm == 0 || wm >= wc) && (em == 0 || em >= ec);
+	}
+
+	// the most successors any state can have
+	public int maxSuccessors() {
+		return loads.length / 2;
+	}
+
+	// writes the legal successors of *state* into *buffer* and returns how many
+	public int successors(long state, long[] buffer) {
+		int wm = westMissionaries(state);
+		int wc = westCannibals(state);
+		boolean west = boatWest(state);
+		int count = 0;
+		for (int i = 0; i < loads.length; i += 2) {
+			// the boat takes people away from whichever bank it is on
+			int m = west ? wm - loads[i] : wm + loads[i];
+			int c = west ? wc - loads[i + 1] : wc + loads[i + 1];
+			if (m < 0 || c < 0 || m > n || c > n) {
+				continue; // not enough people on that bank
+			}
+			long next = pack(m, c, !west);
+			if (isLegal(next)) {
+				buffer[count++] = next;
+			}
+		}
+		return count;
+	}
+
+	// for GenericSearch
+	public List<Long> successors(Long state) {
+		long[] buffer = new long[maxSuccessors()];
+		int count = successors(state.longValue(), buffer);
+		List<Long> sucs = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			sucs.add(buffer[i]);
+		}
+		return sucs;
+	}
+
+	// dense ids from 0 until stateCount() for IntSearch
+	public int stateCount() {
+		return 2 * (n + 1) * (n + 1);
+	}
+
+	public int toId(long state) {
+		return ((westMissionaries(state) * (n + 1) + westCannibals(state)) << 1) | (boatWest(state) ? 1 : 0);
+	}
+
+	public long fromId(int id) {
+		int counts = id >>> 1;
+		return pack(counts / (n + 1), counts % (n + 1), (id & 1) == 1);
+	}
+
+	public boolean goalTest(int id) {
+		return goalTest(fromId(id));
+	}
+
+	// an IntSearch.IntSuccessors over ids, safe for parallelBfs to call from
+	// several threads since each thread gets its own scratch buffer
+	public IntSearch.IntSuccessors idSuccessors() {
+		ThreadLocal<long[]> scratch = ThreadLocal.withInitial(() -> new long[maxSuccessors()]);
+		return (id, buffer) -> {
+			long[] states = scratch.get();
+			int count = successors(fromId(id), states);
+			for (int i = 0; i < count; i++) {
+				buffer[i] = toId(states[i]);
+			}
+			return count;
+		};
+	}
+
+	// breadth-first visit of every state reachable from the initial one,
+	// returns how many there are
+	public long enumerate(LongConsumer visitor) {
+		BitSet explored = new BitSet(stateCount());
+		int[] queue = new int[stateCount()];
+		long[] buffer = new long[maxSuccessors()];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = toId(initial());
+		explored.set(queue[0]);
+		while (head < tail) {
+			long state = fromId(queue[head++]);
+			visitor.accept(state);
+			int count = successors(state, buffer);
+			for (int i = 0; i < count; i++) {
+				int id = toId(buffer[i]);
+				if (!explored.get(id)) {
+					explored.set(id);
+					queue[tail++] = id;
+				}
+			}
+		}
+		return tail;
+	}
+
+	public String toString(long state) {
+		int wm = westMissionaries(state);
+		int wc = westCannibals(state);
+		return String.format(
+				"On the west bank there are %d missionaries and %d cannibals.%n"
+						+ "On the east bank there are %d missionaries and %d cannibals.%n"
+						+ "The boat is on the %s bank.",
+				wm, wc, n - wm, n - wc,
+				boatWest(state) ? "west" : "east");
+	}
+
+	public static void main(String[] args) {
+		// the classic puzzle, through GenericSearch
+		MCProblem classic = new MCProblem(3, 2);
+		Node<Long> solution = GenericSearch.bfs(classic.initial(), classic::goalTest, classic::successors);
+		if (solution == null) {
+			System.out.println("No solution found!");
+		} else {
+			for (long state : GenericSearch.nodeToPath(solution)) {
+				System.out.println(classic.toString(state));
+			}
+		}
+
+		// a large instance, through IntSearch
+		MCProblem large = new MCProblem(2000, 4);
+		IntSearch search = new IntSearch(large.stateCount(), large.maxSuccessors());
+		int goal = search.bfs(large.toId(large.initial()), large::goalTest, large.idSuccessors());
+		System.out.println(goal == IntSearch.NOT_FOUND ? "No solution found for n = 2000!"
+				: "n = 2000, capacity 4 takes " + (search.path(goal).length - 1) + " crossings");
+		System.out.println("Reachable states: " + large.enumerate(state -> {
+		}));
+	}
+
+}
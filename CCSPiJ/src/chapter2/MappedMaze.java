@@ -0,0 +1,232 @@
+// MappedMaze.java
+// From Classic Computer Science Problems in Java Chapter 2
+// Copyright 2020 David Kopec
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package chapter2;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import chapter2.Maze.MazeLocation;
+
+// A read-only maze whose cells are read straight out of a memory-mapped file,
+// so grids far larger than the heap can be searched. Two file formats are read:
+//  - text: one line per row, 'X' for a blocked cell and anything else (such as
+//    ' ', 'S', 'G' or '*' as written by Maze.toString) for an open one
+//  - binary: the int MAGIC, int rows and int columns, then one bit per cell in
+//    row-major order, least significant bit first, 1 for blocked
+// It shares goalTest and Grid's successors and manhattanDistance with Maze,
+// both over MazeLocation and over int ids, so it works with GenericSearch
+// and IntSearch alike.
+public class MappedMaze implements Grid {
+
+	public static final int MAGIC = 0x4D415A45; // "MAZE"
+	private static final int HEADER_BYTES = 12;
+	// files are mapped in 1 GB pieces, since one mapping can't pass 2 GB
+	private static final int CHUNK_BITS = 30;
+	private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+	private final MappedByteBuffer[] chunks;
+	private final boolean binary;
+	private final long stride; // bytes per row in a text file, line separator included
+	private final int rows, columns;
+	private final MazeLocation start, goal;
+	private final int goalId;
+
+	private MappedMaze(MappedByteBuffer[] chunks, boolean binary, long stride, int rows, int columns,
+			MazeLocation start, MazeLocation goal) {
+		if (rows <= 0 || columns <= 0) {
+			throw new IllegalArgumentException("A maze needs at least one row and one column, not " + rows + " by "
+					+ columns);
+		}
+		if ((long) rows * columns > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("A maze can have at most Integer.MAX_VALUE cells");
+		}
+		checkInside(start, rows, columns);
+		checkInside(goal, rows, columns);
+		this.chunks = chunks;
+		this.binary = binary;
+		this.stride = stride;
+		this.rows = rows;
+		this.columns = columns;
+		this.start = start;
+		this.goal = goal;
+		goalId = toId(goal);
+	}
+
+	private static void checkInside(MazeLocation ml, int rows, int columns) {
+		if (ml.row < 0 || ml.row >= rows || ml.column < 0 || ml.column >= columns) {
+			throw new IllegalArgumentException("(" + ml.row + ", " + ml.column + ") is outside a " + rows + " by "
+					+ columns + " maze");
+		}
+	}
+
+	// the same map with different end points, sharing the mapping
+	public MappedMaze withEndpoints(MazeLocation start, MazeLocation goal) {
+		return new MappedMaze(chunks, binary, stride, rows, columns, start, goal);
+	}
+
+	private static MappedByteBuffer[] map(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			List<MappedByteBuffer> chunks = new ArrayList<>();
+			for (long position = 0; position < size; position += 1L << CHUNK_BITS) {
+				long length = Math.min(1L << CHUNK_BITS, size - position);
+				chunks.add(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+			}
+			return chunks.toArray(new MappedByteBuffer[0]);
+		}
+	}
+
+	public static MappedMaze loadText(Path path, MazeLocation start, MazeLocation goal) throws IOException {
+		MappedByteBuffer[] chunks = map(path);
+		long size = Files.size(path);
+		// the first line gives the width and the line separator for the whole file
+		long firstNewline = -1;
+		for (long offset = 0; offset < size; offset++) {
+			if (get(chunks, offset) == '\n') {
+				firstNewline = offset;
+				break;
+			}
+		}
+		if (firstNewline == -1) {
+			throw new IOException("A text maze needs every row to end with a line separator");
+		}
+		boolean crlf = firstNewline > 0 && get(chunks, firstNewline - 1) == '\r';
+		long columns = crlf ? firstNewline - 1 : firstNewline;
+		long stride = firstNewline + 1;
+		if (size % stride != 0 || columns > Integer.MAX_VALUE) {
+			throw new IOException("Every row of a text maze must be the same length");
+		}
+		return new MappedMaze(chunks, false, stride, (int) (size / stride), (int) columns, start, goal);
+	}
+
+	public static MappedMaze loadBinary(Path path, MazeLocation start, MazeLocation goal) throws IOException {
+		MappedByteBuffer[] chunks = map(path);
+		if (chunks.length == 0 || chunks[0].limit() < HEADER_BYTES || chunks[0].getInt(0) != MAGIC) {
+			throw new IOException(path + " is not a binary maze");
+		}
+		int rows = chunks[0].getInt(4);
+		int columns = chunks[0].getInt(8);
+		if (Files.size(path) < HEADER_BYTES + ((long) rows * columns + 7) / 8) {
+			throw new IOException(path + " is truncated");
+		}
+		return new MappedMaze(chunks, true, 0, rows, columns, start, goal);
+	}
+
+	// convert a text maze to the binary format, an eighth of the size
+	public static void textToBinary(Path text, Path binary) throws IOException {
+		MappedMaze maze = loadText(text, new MazeLocation(0, 0), new MazeLocation(0, 0));
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(binary)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(maze.rows);
+			out.writeInt(maze.columns);
+			int current = 0;
+			int cellCount = maze.getCellCount();
+			for (int id = 0; id < cellCount; id++) {
+				if (maze.isBlocked(id)) {
+					current |= 1 << (id & 7);
+				}
+				if ((id & 7) == 7) {
+					out.write(current);
+					current = 0;
+				}
+			}
+			if ((cellCount & 7) != 0) {
+				out.write(current);
+			}
+		}
+	}
+
+	private static byte get(MappedByteBuffer[] chunks, long offset) {
+		return chunks[(int) (offset >>> CHUNK_BITS)].get((int) (offset & CHUNK_MASK));
+	}
+
+	@Override
+	public boolean isBlocked(int id) {
+		if (binary) {
+			return (get(chunks, HEADER_BYTES + (id >>> 3)) & (1 << (id & 7))) != 0;
+		}
+		int row = id / columns;
+		return get(chunks, row * stride + (id - row * columns)) == 'X';
+	}
+
+	@Override
+	public int getRows() {
+		return rows;
+	}
+
+	@Override
+	public int getColumns() {
+		return columns;
+	}
+
+	public MazeLocation getStart() {
+		return start;
+	}
+
+	@Override
+	public MazeLocation getGoal() {
+		return goal;
+	}
+
+	public boolean goalTest(MazeLocation ml) {
+		return goal.equals(ml);
+	}
+
+	public boolean goalTest(int id) {
+		return id == goalId;
+	}
+
+	public static void main(String[] args) {
+		try {
+			// save a random maze as text, convert it to binary, and search both
+			Maze maze = new Maze();
+			Path text = Files.createTempFile("maze", ".txt");
+			Path binary = Files.createTempFile("maze", ".bin");
+			Files.writeString(text, maze.toString());
+			textToBinary(text, binary);
+			MazeLocation start = new MazeLocation(0, 0);
+			MazeLocation goal = new MazeLocation(9, 9);
+			MappedMaze fromText = loadText(text, start, goal);
+			MappedMaze fromBinary = loadBinary(binary, start, goal);
+			System.out.println(maze);
+
+			GenericSearch.Node<MazeLocation> solution = GenericSearch.bfs(start, fromText::goalTest,
+					fromText::successors);
+			System.out.println(solution == null ? "No solution found in the text maze!"
+					: "Text maze path length: " + GenericSearch.nodeToPath(solution).size());
+			IntSearch search = new IntSearch(fromBinary.getCellCount(), 4);
+			int goalId = search.astar(fromBinary.toId(start), fromBinary::goalTest, fromBinary::successors,
+					fromBinary::manhattanDistance);
+			System.out.println(goalId == IntSearch.NOT_FOUND ? "No solution found in the binary maze!"
+					: "Binary maze path length: " + search.path(goalId).length);
+			Files.delete(text);
+			Files.delete(binary);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
@@ -18,11 +18,13 @@ package chapter2;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 
 import chapter2.GenericSearch.Node;
 
-public class Maze {
+public class Maze implements Grid {
 
 	public enum Cell {
 		EMPTY(" "),
@@ -85,26 +87,37 @@ public class Maze {
 		}
 	}
 
+	// the grid is stored as two bits per cell, 32 cells to a long, indexed by
+	// cell id (row * columns + column); START and GOAL are never stored since
+	// they always sit at *start* and *goal*
+	private static final int EMPTY_BITS = 0;
+	private static final int BLOCKED_BITS = 1;
+	private static final int PATH_BITS = 2;
+	// (dRow, dColumn) pairs for down, up, right and left
+	private static final int[] ALL_DIRECTIONS = { 1, 0, -1, 0, 0, 1, 0, -1 };
+
 	private final int rows, columns;
 	private final MazeLocation start, goal;
-	private Cell[][] grid;
+	private final int goalId;
+	private final long[] grid;
 
 	public Maze(int rows, int columns, MazeLocation start, MazeLocation goal, double sparseness) {
+		if ((long) rows * columns > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("A maze can have at most Integer.MAX_VALUE cells");
+		}
 		// initialize basic instance variables
 		this.rows = rows;
 		this.columns = columns;
 		this.start = start;
 		this.goal = goal;
-		// fill the grid with empty cells
-		grid = new Cell[rows][columns];
-		for (Cell[] row : grid) {
-			Arrays.fill(row, Cell.EMPTY);
-		}
+		goalId = toId(goal);
+		// a zeroed grid is all empty cells
+		grid = new long[(int) (((long) rows * columns + 31) >>> 5)];
 		// populate the grid with blocked cells
 		randomlyFill(sparseness);
-		// fill the start and goal locations
-		grid[start.row][start.column] = Cell.START;
-		grid[goal.row][goal.column] = Cell.GOAL;
+		// the start and goal locations are never blocked
+		setCell(toId(start), EMPTY_BITS);
+		setCell(goalId, EMPTY_BITS);
 	}
 
 	public Maze() {
@@ -112,22 +125,52 @@ public class Maze {
 	}
 
 	private void randomlyFill(double sparseness) {
-		for (int row = 0; row < rows; row++) {
-			for (int column = 0; column < columns; column++) {
-				if (Math.random() < sparseness) {
-					grid[row][column] = Cell.BLOCKED;
-				}
+		for (int id = 0; id < rows * columns; id++) {
+			if (Math.random() < sparseness) {
+				setCell(id, BLOCKED_BITS);
 			}
 		}
 	}
 
+	private int cellBits(int id) {
+		return (int) (grid[id >>> 5] >>> ((id & 31) << 1)) & 3;
+	}
+
+	private void setCell(int id, int bits) {
+		int word = id >>> 5;
+		int shift = (id & 31) << 1;
+		grid[word] = (grid[word] & ~(3L << shift)) | ((long) bits << shift);
+	}
+
+	@Override
+	public boolean isBlocked(int id) {
+		return cellBits(id) == BLOCKED_BITS;
+	}
+
+	public Cell cellAt(MazeLocation ml) {
+		if (ml.equals(start)) {
+			return Cell.START;
+		}
+		if (ml.equals(goal)) {
+			return Cell.GOAL;
+		}
+		switch (cellBits(toId(ml))) {
+		case BLOCKED_BITS:
+			return Cell.BLOCKED;
+		case PATH_BITS:
+			return Cell.PATH;
+		default:
+			return Cell.EMPTY;
+		}
+	}
+
 	// return a nicely formatted version of the maze for printing
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
-		for (Cell[] row : grid) {
-			for (Cell cell : row) {
-				sb.append(cell);
+		for (int row = 0; row < rows; row++) {
+			for (int column = 0; column < columns; column++) {
+				sb.append(cellAt(new MazeLocation(row, column)));
 			}
 			sb.append(System.lineSeparator());
 		}
@@ -138,37 +181,36 @@ public class Maze {
 		return goal.equals(ml);
 	}
 
-	public List<MazeLocation> successors(MazeLocation ml) {
-		List<MazeLocation> locations = new ArrayList<>();
-		if (ml.row + 1 < rows && grid[ml.row + 1][ml.column] != Cell.BLOCKED) {
-			locations.add(new MazeLocation(ml.row + 1, ml.column));
-		}
-		if (ml.row - 1 >= 0 && grid[ml.row - 1][ml.column] != Cell.BLOCKED) {
-			locations.add(new MazeLocation(ml.row - 1, ml.column));
-		}
-		if (ml.column + 1 < columns && grid[ml.row][ml.column + 1] != Cell.BLOCKED) {
-			locations.add(new MazeLocation(ml.row, ml.column + 1));
-		}
-		if (ml.column - 1 >= 0 && grid[ml.row][ml.column - 1] != Cell.BLOCKED) {
-			locations.add(new MazeLocation(ml.row, ml.column - 1));
-		}
-		return locations;
+	@Override
+	public int getRows() {
+		return rows;
+	}
+
+	@Override
+	public int getColumns() {
+		return columns;
 	}
 
+	@Override
+	public MazeLocation getGoal() {
+		return goal;
+	}
+
+	public boolean goalTest(int id) {
+		return id == goalId;
+	}
+
+	// start and goal keep showing as START and GOAL, see cellAt
 	public void mark(List<MazeLocation> path) {
 		for (MazeLocation ml : path) {
-			grid[ml.row][ml.column] = Cell.PATH;
+			setCell(toId(ml), PATH_BITS);
 		}
-		grid[start.row][start.column] = Cell.START;
-		grid[goal.row][goal.column] = Cell.GOAL;
 	}
 
 	public void clear(List<MazeLocation> path) {
 		for (MazeLocation ml : path) {
-			grid[ml.row][ml.column] = Cell.EMPTY;
+			setCell(toId(ml), EMPTY_BITS);
 		}
-		grid[start.row][start.column] = Cell.START;
-		grid[goal.row][goal.column] = Cell.GOAL;
 	}
 
 	public double euclideanDistance(MazeLocation ml) {
@@ -177,10 +219,147 @@ public class Maze {
 		return Math.sqrt((xdist * xdist) + (ydist * ydist));
 	}
 
-	public double manhattanDistance(MazeLocation ml) {
-		int xdist = Math.abs(ml.column - goal.column);
-		int ydist = Math.abs(ml.row - goal.row);
-		return (xdist + ydist);
+	public static double manhattanDistance(MazeLocation from, MazeLocation to) {
+		return Math.abs(from.column - to.column) + Math.abs(from.row - to.row);
+	}
+
+	private boolean isOpen(int row, int column) {
+		return row >= 0 && row < rows && column >= 0 && column < columns
+				&& !isBlocked(row * columns + column);
+	}
+
+	// Walk from (row, column) in direction *dColumn* until reaching the goal or a
+	// cell with a forced neighbor (an open cell above or below whose own
+	// predecessor is blocked, so no other shortest path could reach it).
+	// Returns the id of that jump point, or -1 if a wall is hit first.
+	private int jumpHorizontal(int row, int column, int dColumn) {
+		while (true) {
+			column += dColumn;
+			if (!isOpen(row, column)) {
+				return -1;
+			}
+			int id = row * columns + column;
+			if (id == goalId) {
+				return id;
+			}
+			if ((isOpen(row - 1, column) && !isOpen(row - 1, column - dColumn))
+					|| (isOpen(row + 1, column) && !isOpen(row + 1, column - dColumn))) {
+				return id;
+			}
+		}
+	}
+
+	// Like jumpHorizontal, but a cell is also a jump point if a horizontal jump
+	// from it finds one, since vertical moves are canonically taken first
+	private int jumpVertical(int row, int column, int dRow) {
+		while (true) {
+			row += dRow;
+			if (!isOpen(row, column)) {
+				return -1;
+			}
+			int id = row * columns + column;
+			if (id == goalId) {
+				return id;
+			}
+			if ((isOpen(row, column - 1) && !isOpen(row - dRow, column - 1))
+					|| (isOpen(row, column + 1) && !isOpen(row - dRow, column + 1))) {
+				return id;
+			}
+			if (jumpHorizontal(row, column, 1) != -1 || jumpHorizontal(row, column, -1) != -1) {
+				return id;
+			}
+		}
+	}
+
+	public List<MazeLocation> jumpPointSearch() {
+		return jumpPointSearch(SearchStats.DISABLED);
+	}
+
+	// A* over jump points only: from each expanded cell, only the directions
+	// that can start a shortest path not already covered by its parent are
+	// tried, and each one jumps along a straight line instead of queueing every
+	// cell. Returns the full cell-by-cell path from start to goal, or null.
+	public List<MazeLocation> jumpPointSearch(SearchStats stats) {
+		stats.startPhase("jps");
+		int cellCount = rows * columns;
+		int startId = toId(start);
+		int[] costs = new int[cellCount];
+		Arrays.fill(costs, Integer.MAX_VALUE);
+		int[] parents = new int[cellCount];
+		BitSet closed = new BitSet(cellCount);
+		int closedCount = 0; // the heap holds each cell once, so none is closed twice
+		IndexedMinHeap frontier = new IndexedMinHeap(16);
+		costs[startId] = 0;
+		parents[startId] = -1;
+		frontier.insert(startId, manhattanDistance(startId));
+		// (dRow, dColumn) pairs for the directions worth trying from a jump point
+		int[] turns = new int[6];
+		try {
+			while (!frontier.isEmpty()) {
+				int current = frontier.poll();
+				if (current == goalId) {
+					return jumpPointPath(current, parents);
+				}
+				closed.set(current);
+				closedCount++;
+				stats.expanded();
+				int row = current / columns;
+				int column = current % columns;
+				int[] directions = ALL_DIRECTIONS; // the start cell can go anywhere
+				int parent = parents[current];
+				if (parent != -1) { // otherwise keep going, or turn
+					int dRow = Integer.signum(row - parent / columns);
+					int dColumn = Integer.signum(column - parent % columns);
+					turns[0] = dRow;
+					turns[1] = dColumn;
+					turns[2] = dColumn;
+					turns[3] = dRow;
+					turns[4] = -dColumn;
+					turns[5] = -dRow;
+					directions = turns;
+				}
+				for (int i = 0; i < directions.length / 2; i++) {
+					int dRow = directions[i * 2];
+					int dColumn = directions[i * 2 + 1];
+					int jumpPoint = dRow != 0 ? jumpVertical(row, column, dRow)
+							: jumpHorizontal(row, column, dColumn);
+					if (jumpPoint == -1 || closed.get(jumpPoint)) {
+						continue;
+					}
+					stats.generated();
+					int newCost = costs[current] + Math.abs(jumpPoint / columns - row)
+							+ Math.abs(jumpPoint % columns - column);
+					if (newCost < costs[jumpPoint]) {
+						costs[jumpPoint] = newCost;
+						parents[jumpPoint] = current;
+						frontier.insertOrDecrease(jumpPoint, newCost + manhattanDistance(jumpPoint));
+					} else {
+						stats.duplicate();
+					}
+				}
+				stats.frontierSize(frontier.size());
+				stats.exploredSize(closedCount);
+			}
+			return null; // went through everything and never found goal
+		} finally {
+			stats.endPhase("jps");
+		}
+	}
+
+	// fill in the straight runs between consecutive jump points
+	private List<MazeLocation> jumpPointPath(int goal, int[] parents) {
+		List<MazeLocation> path = new ArrayList<>();
+		for (int id = goal; parents[id] != -1; id = parents[id]) {
+			int parent = parents[id];
+			int step = Math.abs(id - parent) < columns ? Integer.signum(id - parent)
+					: Integer.signum(id - parent) * columns;
+			for (int cell = id; cell != parent; cell -= step) {
+				path.add(fromId(cell));
+			}
+		}
+		path.add(start);
+		Collections.reverse(path);
+		return path;
 	}
 
 	public static void main(String[] args) {
@@ -207,15 +386,53 @@ public class Maze {
 			m.clear(path2);
 		}
 
-		Node<MazeLocation> solution3 = GenericSearch.astar(m.start, m::goalTest, m::successors, m::manhattanDistance);
+		SearchStats stats = new SearchStats();
+		Node<MazeLocation> solution3 = GenericSearch.astar(m.start, m::goalTest, m::successors, m::manhattanDistance,
+				stats);
 		if (solution3 == null) {
 			System.out.println("No solution found using A*!");
 		} else {
+			stats.startPhase("path");
 			List<MazeLocation> path3 = GenericSearch.nodeToPath(solution3);
+			stats.endPhase("path");
 			m.mark(path3);
 			System.out.println(m);
 			m.clear(path3);
 		}
+		System.out.println(stats);
+
+		Node<MazeLocation> solution4 = GenericSearch.bidirectionalAstar(m.start, m.goal, m::successors,
+				Maze::manhattanDistance);
+		if (solution4 == null) {
+			System.out.println("No solution found using bidirectional A*!");
+		} else {
+			List<MazeLocation> path4 = GenericSearch.nodeToPath(solution4);
+			m.mark(path4);
+			System.out.println(m);
+			m.clear(path4);
+		}
+
+		SearchStats jpsStats = new SearchStats();
+		List<MazeLocation> path5 = m.jumpPointSearch(jpsStats);
+		if (path5 == null) {
+			System.out.println("No solution found using jump point search!");
+		} else {
+			m.mark(path5);
+			System.out.println(m);
+			m.clear(path5);
+		}
+		System.out.println(jpsStats);
+
+		IntSearch search = new IntSearch(m.getCellCount(), 4);
+		int solution6 = search.astar(m.toId(m.start), m::goalTest, m::successors, m::manhattanDistance);
+		if (solution6 == IntSearch.NOT_FOUND) {
+			System.out.println("No solution found using A* over int states!");
+		} else {
+			List<MazeLocation> path6 = search.path(solution6, m::fromId);
+			m.mark(path6);
+			System.out.println(m);
+			m.clear(path6);
+		}
 	}
 
 }
@@ -0,0 +1,196 @@
+// MazePathService.java
+// From Classic Computer Science Problems in Java Chapter 2
+// Copyright 2020 David Kopec
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package chapter2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import chapter2.Maze.Cell;
+import chapter2.Maze.MazeLocation;
+
+// Answers many start/goal queries against one unchanging Maze. Once a goal has
+// been asked for *hotThreshold* times, a breadth-first distance field rooted at
+// it is computed (the distance from every cell to the goal, -1 if unreachable)
+// and later queries for that goal just walk downhill from the start, which
+// takes time proportional to the path length. Fields are kept in least
+// recently used order and evicted to stay within *memoryBudget* bytes. Every
+// other query runs A*. Not thread safe, use one service per thread.
+public class MazePathService {
+	// how many goals' query counts to remember while deciding which are hot
+	private static final int MAX_TRACKED_GOALS = 4096;
+
+	private final Maze maze;
+	private final long memoryBudget;
+	private final int hotThreshold;
+	private final IntSearch search;
+	private final int[] buffer = new int[4];
+	private final Map<Integer, int[]> distanceFields = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<Integer, Integer> queryCounts = new LinkedHashMap<>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+			return size() > MAX_TRACKED_GOALS;
+		}
+	};
+	private long cacheHits;
+	private long fallbacks;
+
+	public MazePathService(Maze maze, long memoryBudget, int hotThreshold) {
+		this.maze = maze;
+		this.memoryBudget = memoryBudget;
+		this.hotThreshold = hotThreshold;
+		search = new IntSearch(maze.getCellCount(), 4);
+	}
+
+	// the cells from *start* to *goal*, the same shape as GenericSearch.nodeToPath,
+	// or null if the goal can't be reached
+	public List<MazeLocation> path(MazeLocation start, MazeLocation goal) {
+		if (isBlocked(start) || isBlocked(goal)) {
+			return null; // checked here so a distance field is never rooted in a wall
+		}
+		int startId = maze.toId(start);
+		int goalId = maze.toId(goal);
+		int[] field = distanceFields.get(goalId);
+		if (field == null && queryCounts.merge(goalId, 1, Integer::sum) >= hotThreshold) {
+			field = cacheDistanceField(goalId);
+		}
+		if (field != null) {
+			cacheHits++;
+			return descend(field, startId);
+		}
+		fallbacks++;
+		int columns = maze.getColumns();
+		int goalRow = goal.row;
+		int goalColumn = goal.column;
+		int found = search.astar(startId, id -> id == goalId, maze::successors,
+				id -> Math.abs(id / columns - goalRow) + Math.abs(id % columns - goalColumn));
+		return found == IntSearch.NOT_FOUND ? null : search.path(found, maze::fromId);
+	}
+
+	// the length of the shortest path in steps, or -1 if there is none
+	public int distance(MazeLocation start, MazeLocation goal) {
+		if (isBlocked(start) || isBlocked(goal)) {
+			return -1;
+		}
+		int[] field = distanceFields.get(maze.toId(goal));
+		if (field != null) {
+			cacheHits++;
+			return field[maze.toId(start)];
+		}
+		List<MazeLocation> path = path(start, goal);
+		return path == null ? -1 : path.size() - 1;
+	}
+
+	private boolean isBlocked(MazeLocation location) {
+		return maze.cellAt(location) == Cell.BLOCKED;
+	}
+
+	// bfs outward from the goal, the maze's moves all work in both directions
+	private int[] distanceField(int goalId) {
+		int[] distances = new int[maze.getCellCount()];
+		Arrays.fill(distances, -1);
+		int[] queue = new int[maze.getCellCount()];
+		int head = 0;
+		int tail = 0;
+		distances[goalId] = 0;
+		queue[tail++] = goalId;
+		while (head < tail) {
+			int current = queue[head++];
+			int count = maze.successors(current, buffer);
+			for (int i = 0; i < count; i++) {
+				int next = buffer[i];
+				if (distances[next] == -1) {
+					distances[next] = distances[current] + 1;
+					queue[tail++] = next;
+				}
+			}
+		}
+		return distances;
+	}
+
+	private int[] cacheDistanceField(int goalId) {
+		long fieldBytes = 4L * maze.getCellCount();
+		if (fieldBytes > memoryBudget) {
+			return null; // would never fit
+		}
+		// evict the least recently used fields until the new one fits
+		Iterator<int[]> oldest = distanceFields.values().iterator();
+		while ((distanceFields.size() + 1) * fieldBytes > memoryBudget) {
+			oldest.next();
+			oldest.remove();
+		}
+		int[] field = distanceField(goalId);
+		distanceFields.put(goalId, field);
+		queryCounts.remove(goalId);
+		return field;
+	}
+
+	// step to any neighbor one closer to the goal until reaching it
+	private List<MazeLocation> descend(int[] field, int startId) {
+		int distance = field[startId];
+		if (distance == -1) {
+			return null;
+		}
+		List<MazeLocation> path = new ArrayList<>(distance + 1);
+		int current = startId;
+		path.add(maze.fromId(current));
+		while (distance > 0) {
+			int count = maze.successors(current, buffer);
+			for (int i = 0; i < count; i++) {
+				if (field[buffer[i]] == distance - 1) {
+					current = buffer[i];
+					break;
+				}
+			}
+			distance--;
+			path.add(maze.fromId(current));
+		}
+		return path;
+	}
+
+	public int getCachedGoalCount() {
+		return distanceFields.size();
+	}
+
+	public long getCacheHits() {
+		return cacheHits;
+	}
+
+	public long getFallbacks() {
+		return fallbacks;
+	}
+
+	public static void main(String[] args) {
+		Maze maze = new Maze(200, 200, new MazeLocation(0, 0), new MazeLocation(199, 199), 0.2);
+		// room for 4 distance fields, goals become hot on their second query
+		MazePathService service = new MazePathService(maze, 4L * 4 * maze.getCellCount(), 2);
+		MazeLocation[] goals = { new MazeLocation(199, 199), new MazeLocation(0, 199),
+				new MazeLocation(100, 100), new MazeLocation(199, 0) };
+		for (int i = 0; i < 1000; i++) {
+			MazeLocation start = new MazeLocation((int) (Math.random() * 200), (int) (Math.random() * 200));
+			service.path(start, goals[i % goals.length]);
+		}
+		System.out.printf("%d cache hits, %d A* fallbacks, %d goals cached%n",
+				service.getCacheHits(), service.getFallbacks(), service.getCachedGoalCount());
+	}
+
+}
@@ -0,0 +1,144 @@
+// SearchStats.java
+// From Classic Computer Science Problems in Java Chapter 2
+// Copyright 2020 David Kopec
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package chapter2;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Counts the work done by a search. Pass an instance to one of the GenericSearch
+// overloads that take a SearchStats; the plain overloads use DISABLED, whose
+// methods return straight away. Not thread safe, use one per search.
+public class SearchStats {
+
+	public static final SearchStats DISABLED = new SearchStats(false);
+
+	private final boolean enabled;
+	private long nodesExpanded;
+	private long nodesGenerated;
+	private long duplicateHits;
+	private int peakFrontierSize;
+	private int peakExploredSize;
+	private final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+	private final Map<String, Long> phaseStarts = new LinkedHashMap<>();
+
+	private SearchStats(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public SearchStats() {
+		this(true);
+	}
+
+	// a state was taken off the frontier and its successors asked for
+	public void expanded() {
+		if (enabled) {
+			nodesExpanded++;
+		}
+	}
+
+	// a successor was produced
+	public void generated() {
+		if (enabled) {
+			nodesGenerated++;
+		}
+	}
+
+	// a successor was dropped because it had already been seen
+	public void duplicate() {
+		if (enabled) {
+			duplicateHits++;
+		}
+	}
+
+	public void frontierSize(int size) {
+		if (enabled && size > peakFrontierSize) {
+			peakFrontierSize = size;
+		}
+	}
+
+	public void exploredSize(int size) {
+		if (enabled && size > peakExploredSize) {
+			peakExploredSize = size;
+		}
+	}
+
+	public void startPhase(String phase) {
+		if (enabled) {
+			phaseStarts.put(phase, System.nanoTime());
+		}
+	}
+
+	// adds the time since the matching startPhase to the phase's total
+	public void endPhase(String phase) {
+		if (enabled) {
+			Long start = phaseStarts.remove(phase);
+			if (start == null) {
+				throw new IllegalStateException("Phase " + phase + " was never started");
+			}
+			phaseNanos.merge(phase, System.nanoTime() - start, Long::sum);
+		}
+	}
+
+	public long getNodesExpanded() {
+		return nodesExpanded;
+	}
+
+	public long getNodesGenerated() {
+		return nodesGenerated;
+	}
+
+	public long getDuplicateHits() {
+		return duplicateHits;
+	}
+
+	public int getPeakFrontierSize() {
+		return peakFrontierSize;
+	}
+
+	public int getPeakExploredSize() {
+		return peakExploredSize;
+	}
+
+	// total wall time in nanoseconds of each finished phase, in the order first seen
+	public Map<String, Long> getPhaseNanos() {
+		return Collections.unmodifiableMap(new LinkedHashMap<>(phaseNanos));
+	}
+
+	public void reset() {
+		nodesExpanded = 0;
+		nodesGenerated = 0;
+		duplicateHits = 0;
+		peakFrontierSize = 0;
+		peakExploredSize = 0;
+		phaseNanos.clear();
+		phaseStarts.clear();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("expanded: %d, generated: %d, duplicates: %d, "
+				+ "peak frontier: %d, peak explored: %d",
+				nodesExpanded, nodesGenerated, duplicateHits, peakFrontierSize, peakExploredSize));
+		for (Map.Entry<String, Long> phase : phaseNanos.entrySet()) {
+			sb.append(String.format(", %s: %.3f ms", phase.getKey(), phase.getValue() / 1_000_000.0));
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,157 @@
+// ArrayAssignment.java
+// From Classic Computer Science Problems in Java Chapter 3
+// Copyright 2020 David Kopec
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package chapter3;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+// A partial assignment stored in arrays indexed by each variable's position in
+// the CSP, so assigning and unassigning allocate nothing. It is a Map so it can
+// be handed to Constraint.satisfied as is. The assigned variables are kept
+// packed in an array, so iterating costs only as much as is assigned.
+final class ArrayAssignment<V, D> extends AbstractMap<V, D> {
+
+	private final List<V> variables;
+	private final Map<V, Integer> indices;
+	private final Object[] values;
+	private final boolean[] assigned;
+	private final int[] order; // the assigned variable indices, packed
+	private final int[] positions; // where each assigned variable is in *order*
+	private int size;
+
+	ArrayAssignment(List<V> variables, Map<V, Integer> indices) {
+		this.variables = variables;
+		this.indices = indices;
+		int n = variables.size();
+		values = new Object[n];
+		assigned = new boolean[n];
+		order = new int[n];
+		positions = new int[n];
+	}
+
+	void assign(int variable, D value) {
+		if (!assigned[variable]) {
+			assigned[variable] = true;
+			positions[variable] = size;
+			order[size++] = variable;
+		}
+		values[variable] = value;
+	}
+
+	void unassign(int variable) {
+		if (assigned[variable]) {
+			assigned[variable] = false;
+			values[variable] = null;
+			// move the last assigned variable into the gap
+			int last = order[--size];
+			order[positions[variable]] = last;
+			positions[last] = positions[variable];
+		}
+	}
+
+	boolean isAssigned(int variable) {
+		return assigned[variable];
+	}
+
+	@SuppressWarnings("unchecked")
+	D valueOf(int variable) {
+		return (D) values[variable];
+	}
+
+	@Override
+	public void clear() {
+		while (size > 0) {
+			unassign(order[size - 1]);
+		}
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		Integer index = indices.get(key);
+		return index != null && assigned[index];
+	}
+
+	@Override
+	public D get(Object key) {
+		Integer index = indices.get(key);
+		return index == null ? null : valueOf(index);
+	}
+
+	@Override
+	public D put(V key, D value) {
+		Integer index = indices.get(key);
+		if (index == null) {
+			throw new IllegalArgumentException(key + " is not a variable of this CSP");
+		}
+		D old = valueOf(index);
+		assign(index, value);
+		return old;
+	}
+
+	@Override
+	public D remove(Object key) {
+		Integer index = indices.get(key);
+		if (index == null) {
+			return null;
+		}
+		D old = valueOf(index);
+		unassign(index);
+		return old;
+	}
+
+	@Override
+	public Set<Entry<V, D>> entrySet() {
+		return new AbstractSet<>() {
+			@Override
+			public int size() {
+				return size;
+			}
+
+			@Override
+			public Iterator<Entry<V, D>> iterator() {
+				return new Iterator<>() {
+					private int next = 0;
+
+					@Override
+					public boolean hasNext() {
+						return next < size;
+					}
+
+					@Override
+					public Entry<V, D> next() {
+						if (next >= size) {
+							throw new NoSuchElementException();
+						}
+						int variable = order[next++];
+						return new SimpleImmutableEntry<>(variables.get(variable), valueOf(variable));
+					}
+				};
+			}
+		};
+	}
+
+}
@@ -16,10 +16,13 @@
 
 package chapter3;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class CSP<V, D> {
 	private List<V> variables;
@@ -39,7 +42,8 @@ public class CSP<V, D> {
 
 	public void addConstraint(Constraint<V, D> constraint) {
 		for (V variable : constraint.variables) {
-			if (!variables.contains(variable)) {
+			// constraints has a key for every variable, and unlike the list it's a hash lookup
+			if (!constraints.containsKey(variable)) {
 				throw new IllegalArgumentException("Variable in constraint not in CSP");
 			}
 			constraints.get(variable).add(constraint);
@@ -85,4 +89,65 @@ public class CSP<V, D> {
 	public Map<V, D> backtrackingSearch() {
 		return backtrackingSearch(new HashMap<>());
 	}
+
+	// backtracking with the variable and value ordering and the inference of
+	// *strategy*, use a CSPSolver directly to also see how much work it did
+	public Map<V, D> backtrackingSearch(SearchStrategy strategy) {
+		return new CSPSolver<>(this, strategy).solve();
+	}
+
+	// the same search split across the common ForkJoinPool, see ParallelCSPSolver
+	public Map<V, D> parallelBacktrackingSearch(SearchStrategy strategy) {
+		return new ParallelCSPSolver<>(this).solve(strategy);
+	}
+
+	// Every solution, each found only when the stream asks for the next one.
+	// A parallel stream splits the search tree between its threads.
+	public Stream<Map<V, D>> solutions(SearchStrategy strategy) {
+		return StreamSupport.stream(new SolutionSpliterator<>(this, strategy), false);
+	}
+
+	public Stream<Map<V, D>> solutions() {
+		return solutions(SearchStrategy.ALL_SOLUTIONS);
+	}
+
+	// the number of solutions, found without building any of them
+	public long countSolutions(SearchStrategy strategy) {
+		return new CSPSolver<>(this, strategy).countSolutions();
+	}
+
+	public long countSolutions() {
+		return countSolutions(SearchStrategy.ALL_SOLUTIONS);
+	}
+
+	// local search, for CSPs too big to backtrack through; null if no solution
+	// turned up within *budget*, which doesn't mean there isn't one
+	public Map<V, D> minConflictsSearch(Duration budget) {
+		return new MinConflictsSolver<>(this).solve(budget);
+	}
+
+	// The domains with every value removed that has no support in some binary
+	// constraint (AC-3). A variable gets an empty list if the CSP has no solution.
+	public Map<V, List<D>> arcConsistentDomains() {
+		CSPSolver<V, D> solver = new CSPSolver<>(this, SearchStrategy.MAC);
+		solver.propagate();
+		Map<V, List<D>> reduced = new HashMap<>();
+		for (V variable : variables) {
+			reduced.put(variable, solver.remainingValues(variable));
+		}
+		return reduced;
+	}
+
+	// for CSPSolver and MinConflictsSolver
+	List<V> getVariables() {
+		return variables;
+	}
+
+	List<D> getDomain(V variable) {
+		return domains.get(variable);
+	}
+
+	List<Constraint<V, D>> getConstraints(V variable) {
+		return constraints.get(variable);
+	}
 }
@@ -0,0 +1,784 @@
+// CSPSolver.java
+// From Classic Computer Science Problems in Java Chapter 3
+// Copyright 2020 David Kopec
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package chapter3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import chapter3.SearchStrategy.Inference;
+import chapter3.SearchStrategy.ValueOrdering;
+import chapter3.SearchStrategy.VariableSelection;
+
+// Backtracking search over a CSP driven by a SearchStrategy. Variables and
+// values are numbered by their position in the CSP, and the values still
+// possible for each variable are tracked with a removed flag per value. Every
+// removal is pushed onto a trail, so backtracking undoes exactly the pruning
+// done since a variable was assigned. The search runs on an explicit stack
+// rather than by recursion. The assignment is a single ArrayAssignment that
+// is changed in place, and constraints are asked only about the variable just
+// assigned, so a step of the search allocates nothing. Not thread safe, use
+// one per thread.
+//
+// Arc consistency works on the constraints over exactly two variables. Each
+// such constraint gives two arcs, and revising arc (x, y) removes the values
+// of x with no supporting value left in y. The support last found for each
+// value is kept as a residue and checked first (AC-3 with residual supports,
+// the variant of AC-2001 that needs no undo when the search backtracks).
+public class CSPSolver<V, D> {
+
+	private final SearchStrategy strategy;
+	private final List<V> variables;
+	private final List<List<D>> domains; // by variable index
+	private final List<List<Constraint<V, D>>> constraints; // by variable index
+	private final int[][] constraintVariables; // by index into allConstraints
+	private final int[][] constraintsOf; // the constraints each variable is in
+	private final int[][] neighbors; // the variables sharing a constraint with each variable
+	private final List<Constraint<V, D>> allConstraints = new ArrayList<>();
+	private final Map<V, Integer> indices = new HashMap<>();
+
+	// arcs of the binary constraints, arc (x, y) revises x against y
+	private final int[] arcFrom, arcTo, arcConstraint;
+	private final int[][] arcsInto; // the arcs to revise when a variable's domain shrinks
+	private final int[][] residues; // by arc and value of x, the value of y last found to support it
+	private final int[] queue;
+	private final boolean[] queued;
+	private int queueHead, queueTail, queueSize; // queue is circular and holds each arc at most once
+	private final ArrayAssignment<V, D> pair; // scratch assignment for binary checks
+
+	// the values left for each variable
+	private final boolean[][] removed;
+	private final int[] domainSizes;
+	// (variable, value) pairs in the order they were removed
+	private int[] trail = new int[64];
+	private int trailSize;
+
+	private final ArrayAssignment<V, D> assignment;
+	private final boolean[] assigned;
+	private int assignedCount;
+
+	// the search stack, one level per assigned variable
+	private final int[] stackVariables;
+	private final int[][] stackOrders; // value indices to try, in order
+	private final int[] stackLengths;
+	private final int[] stackNext;
+	private final int[] stackMarks; // trail size before the level's assignment
+	private final boolean[] stackAssigned;
+	private int depth;
+	private boolean solutionPending; // start() assigned everything, next() reports it once
+	// the assignments start() made below the stack
+	private int[] prefixVariables = new int[0], prefixValues = new int[0];
+	private final long[] scores; // scratch for value ordering
+
+	private long nodes;
+	private long backtracks;
+	private long valuesPruned;
+	private long valuesPrunedBeforeSearch;
+	private long totalValues;
+
+	// for randomized restarts and running alongside other solvers
+	private Random random; // breaks ties in variable and value order when set
+	private long nodeLimit = Long.MAX_VALUE;
+	private BooleanSupplier stop = () -> false;
+	private boolean stopped;
+
+	public CSPSolver(CSP<V, D> csp, SearchStrategy strategy) {
+		this.strategy = strategy;
+		variables = csp.getVariables();
+		int n = variables.size();
+		for (int i = 0; i < n; i++) {
+			indices.put(variables.get(i), i);
+		}
+		domains = new ArrayList<>(n);
+		constraints = new ArrayList<>(n);
+		constraintsOf = new int[n][];
+		neighbors = new int[n][];
+		removed = new boolean[n][];
+		domainSizes = new int[n];
+		int maxDomain = 0;
+		Map<Constraint<V, D>, Integer> constraintIds = new HashMap<>();
+		for (int i = 0; i < n; i++) {
+			V variable = variables.get(i);
+			List<D> domain = csp.getDomain(variable);
+			domains.add(domain);
+			removed[i] = new boolean[domain.size()];
+			domainSizes[i] = domain.size();
+			maxDomain = Math.max(maxDomain, domain.size());
+			List<Constraint<V, D>> variableConstraints = csp.getConstraints(variable);
+			constraints.add(variableConstraints);
+			constraintsOf[i] = new int[variableConstraints.size()];
+			for (int c = 0; c < variableConstraints.size(); c++) {
+				Constraint<V, D> constraint = variableConstraints.get(c);
+				Integer id = constraintIds.get(constraint);
+				if (id == null) {
+					id = allConstraints.size();
+					constraintIds.put(constraint, id);
+					allConstraints.add(constraint);
+				}
+				constraintsOf[i][c] = id;
+			}
+		}
+		constraintVariables = new int[allConstraints.size()][];
+		for (int c = 0; c < allConstraints.size(); c++) {
+			constraintVariables[c] = allConstraints.get(c).variables.stream().mapToInt(indices::get).toArray();
+		}
+		for (int i = 0; i < n; i++) {
+			Set<Integer> adjacent = new LinkedHashSet<>();
+			for (int c : constraintsOf[i]) {
+				for (int other : constraintVariables[c]) {
+					if (other != i) {
+						adjacent.add(other);
+					}
+				}
+			}
+			neighbors[i] = adjacent.stream().mapToInt(Integer::intValue).toArray();
+		}
+		// two arcs for every binary constraint
+		List<Integer> binary = new ArrayList<>();
+		for (int c = 0; c < allConstraints.size(); c++) {
+			if (constraintVariables[c].length == 2) {
+				binary.add(c);
+			}
+		}
+		int arcCount = binary.size() * 2;
+		arcFrom = new int[arcCount];
+		arcTo = new int[arcCount];
+		arcConstraint = new int[arcCount];
+		residues = new int[arcCount][];
+		int[] intoCounts = new int[n];
+		for (int b = 0; b < binary.size(); b++) {
+			int c = binary.get(b);
+			for (int side = 0; side < 2; side++) {
+				int arc = b * 2 + side;
+				arcFrom[arc] = constraintVariables[c][side];
+				arcTo[arc] = constraintVariables[c][1 - side];
+				arcConstraint[arc] = c;
+				residues[arc] = new int[domains.get(arcFrom[arc]).size()];
+				Arrays.fill(residues[arc], -1);
+				intoCounts[arcTo[arc]]++;
+			}
+		}
+		arcsInto = new int[n][];
+		for (int i = 0; i < n; i++) {
+			arcsInto[i] = new int[intoCounts[i]];
+			intoCounts[i] = 0;
+		}
+		for (int arc = 0; arc < arcCount; arc++) {
+			arcsInto[arcTo[arc]][intoCounts[arcTo[arc]]++] = arc;
+		}
+		assignment = new ArrayAssignment<>(variables, indices);
+		pair = new ArrayAssignment<>(variables, indices);
+		queue = new int[arcCount];
+		queued = new boolean[arcCount];
+		assigned = new boolean[n];
+		stackVariables = new int[n];
+		stackOrders = new int[n][maxDomain];
+		stackLengths = new int[n];
+		stackNext = new int[n];
+		stackMarks = new int[n];
+		stackAssigned = new boolean[n];
+		scores = new long[maxDomain];
+		for (int size : domainSizes) {
+			totalValues += size;
+		}
+	}
+
+	public SearchStrategy getStrategy() {
+		return strategy;
+	}
+
+	// values assigned during the last search, including ones later undone
+	public long getNodes() {
+		return nodes;
+	}
+
+	// times every value of a variable failed and the search stepped back
+	public long getBacktracks() {
+		return backtracks;
+	}
+
+	// neighbor values removed by inference during the last search
+	public long getValuesPruned() {
+		return valuesPruned;
+	}
+
+	// values removed by arc consistency before the last search began
+	public long getValuesPrunedBeforeSearch() {
+		return valuesPrunedBeforeSearch;
+	}
+
+	// the size of every domain in the CSP added up
+	public long getTotalValues() {
+		return totalValues;
+	}
+
+	// Makes the domains arc consistent without searching and returns false if
+	// some domain was emptied. The values left are then given by remainingValues.
+	public boolean propagate() {
+		reset();
+		return preprocess();
+	}
+
+	private boolean preprocess() {
+		boolean consistent = arcConsistency();
+		// nothing is assigned yet, so everything on the trail came from AC-3
+		valuesPrunedBeforeSearch = trailSize / 2;
+		valuesPruned = 0;
+		return consistent;
+	}
+
+	// the values of *variable* not removed so far
+	public List<D> remainingValues(V variable) {
+		int index = indices.get(variable);
+		List<D> values = new ArrayList<>(domainSizes[index]);
+		List<D> domain = domains.get(index);
+		for (int i = 0; i < domain.size(); i++) {
+			if (!removed[index][i]) {
+				values.add(domain.get(i));
+			}
+		}
+		return values;
+	}
+
+	// Breaks ties between equally good variables and values at random, so
+	// repeated solves explore different parts of the tree. null turns it off.
+	public void setRandom(Random random) {
+		this.random = random;
+	}
+
+	// give up a search after assigning this many values
+	public void setNodeLimit(long nodeLimit) {
+		this.nodeLimit = nodeLimit;
+	}
+
+	// true if the last search gave up because of the node limit or a stop request,
+	// rather than because it had been through every assignment
+	public boolean wasStopped() {
+		return stopped;
+	}
+
+	// checked every few hundred nodes, the search gives up once it returns true
+	void setStop(BooleanSupplier stop) {
+		this.stop = stop;
+	}
+
+	// the first solution in the strategy's order, or null if there is none
+	public Map<V, D> solve() {
+		return start(new int[0], new int[0]) && next() ? currentSolution() : null;
+	}
+
+	// how many solutions there are, without building a Map for any of them
+	public long countSolutions() {
+		long count = 0;
+		if (start(new int[0], new int[0])) {
+			while (next()) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	// Sets up a search below the given assignments, variables and values given
+	// by index. Returns false if they already break a constraint.
+	boolean start(int[] prefixVariables, int[] prefixValues) {
+		return start(prefixVariables, prefixValues, -1, null);
+	}
+
+	// the same, but branching first on *branchVariable* with only *branchValues*
+	// in that order, unless *branchVariable* is -1
+	boolean start(int[] prefixVariables, int[] prefixValues, int branchVariable, int[] branchValues) {
+		reset();
+		this.prefixVariables = prefixVariables;
+		this.prefixValues = prefixValues;
+		if (strategy.arcConsistency && !preprocess()) {
+			return false;
+		}
+		for (int size : domainSizes) {
+			if (size == 0) {
+				return false;
+			}
+		}
+		for (int i = 0; i < prefixVariables.length; i++) {
+			int variable = prefixVariables[i];
+			if (removed[variable][prefixValues[i]]) {
+				return false;
+			}
+			assign(variable, prefixValues[i]);
+			if (!consistent(variable) || !infer(variable)) {
+				return false;
+			}
+		}
+		if (assignedCount == variables.size()) {
+			solutionPending = true;
+		} else if (branchVariable == -1) {
+			push(selectVariable());
+		} else {
+			push(branchVariable);
+			int count = 0;
+			for (int value : branchValues) {
+				if (!removed[branchVariable][value]) {
+					stackOrders[0][count++] = value;
+				}
+			}
+			stackLengths[0] = count;
+		}
+		return true;
+	}
+
+	// a part of the search tree handed from one search to another
+	static final class Branch {
+		final int[] prefixVariables, prefixValues;
+		final int variable;
+		final int[] values;
+
+		Branch(int[] prefixVariables, int[] prefixValues, int variable, int[] values) {
+			this.prefixVariables = prefixVariables;
+			this.prefixValues = prefixValues;
+			this.variable = variable;
+			this.values = values;
+		}
+	}
+
+	// Gives away the later half of the work left at the shallowest level with
+	// at least two values to go, counting the one being searched. This search
+	// no longer visits the values given away. null if there is nothing to split.
+	Branch split() {
+		for (int level = 0; level < depth; level++) {
+			int untried = stackLengths[level] - stackNext[level];
+			int give = (untried + (stackAssigned[level] ? 1 : 0)) / 2;
+			if (give == 0) {
+				continue;
+			}
+			stackLengths[level] -= give;
+			int[] values = Arrays.copyOfRange(stackOrders[level], stackLengths[level], stackLengths[level] + give);
+			// everything assigned above this level
+			int[] variablesAbove = Arrays.copyOf(prefixVariables, prefixVariables.length + level);
+			int[] valuesAbove = Arrays.copyOf(prefixValues, prefixValues.length + level);
+			for (int above = 0; above < level; above++) {
+				variablesAbove[prefixVariables.length + above] = stackVariables[above];
+				valuesAbove[prefixValues.length + above] = stackOrders[above][stackNext[above] - 1];
+			}
+			return new Branch(variablesAbove, valuesAbove, stackVariables[level], values);
+		}
+		return null;
+	}
+
+	// the variable start() picked to branch on, -1 if there was nothing left to assign
+	int branchVariable() {
+		return depth > 0 ? stackVariables[0] : -1;
+	}
+
+	// the values of branchVariable() in the order the search would try them
+	int[] branchValues() {
+		return Arrays.copyOf(stackOrders[0], stackLengths[0]);
+	}
+
+	Map<V, D> currentSolution() {
+		return new HashMap<>(assignment);
+	}
+
+	private void reset() {
+		restore(0);
+		for (int i = 0; i < variables.size(); i++) {
+			if (assigned[i]) {
+				unassign(i);
+			}
+		}
+		depth = 0;
+		solutionPending = false;
+		stopped = false;
+		nodes = 0;
+		backtracks = 0;
+		valuesPruned = 0;
+		valuesPrunedBeforeSearch = 0;
+	}
+
+	// moves to the next complete, consistent assignment, false if there are no more
+	boolean next() {
+		if (solutionPending) {
+			solutionPending = false;
+			return true;
+		}
+		while (depth > 0) {
+			int level = depth - 1;
+			int variable = stackVariables[level];
+			// take back whatever this level tried last
+			if (stackAssigned[level]) {
+				unassign(variable);
+				restore(stackMarks[level]);
+				stackAssigned[level] = false;
+			}
+			if (stackNext[level] == stackLengths[level]) {
+				depth--;
+				backtracks++;
+				continue;
+			}
+			if (nodes >= nodeLimit || ((nodes & 0xFF) == 0 && stop.getAsBoolean())) {
+				stopped = true;
+				return false;
+			}
+			int value = stackOrders[level][stackNext[level]++];
+			nodes++;
+			assign(variable, value);
+			stackAssigned[level] = true;
+			if (!consistent(variable) || !infer(variable)) {
+				continue; // undone at the top of the loop
+			}
+			if (assignedCount == variables.size()) {
+				return true;
+			}
+			push(selectVariable());
+		}
+		return false;
+	}
+
+	private void push(int variable) {
+		int level = depth++;
+		stackVariables[level] = variable;
+		stackLengths[level] = orderValues(variable, stackOrders[level]);
+		stackNext[level] = 0;
+		stackMarks[level] = trailSize;
+		stackAssigned[level] = false;
+	}
+
+	private void assign(int variable, int value) {
+		assignment.assign(variable, domains.get(variable).get(value));
+		assigned[variable] = true;
+		assignedCount++;
+		// the variable's domain shrinks to the one value, so inference sees it
+		boolean[] gone = removed[variable];
+		for (int i = 0; i < gone.length; i++) {
+			if (i != value && !gone[i]) {
+				remove(variable, i);
+			}
+		}
+	}
+
+	private void unassign(int variable) {
+		assignment.unassign(variable);
+		assigned[variable] = false;
+		assignedCount--;
+	}
+
+	private void remove(int variable, int value) {
+		if (trailSize == trail.length) {
+			trail = Arrays.copyOf(trail, trail.length * 2);
+		}
+		trail[trailSize++] = variable;
+		trail[trailSize++] = value;
+		removed[variable][value] = true;
+		domainSizes[variable]--;
+	}
+
+	// put back every value removed since the trail was *mark* long
+	private void restore(int mark) {
+		while (trailSize > mark) {
+			int value = trail[--trailSize];
+			int variable = trail[--trailSize];
+			removed[variable][value] = false;
+			domainSizes[variable]++;
+		}
+	}
+
+	// only *variable* is new, so each constraint just has to check it
+	private boolean consistent(int variable) {
+		V key = variables.get(variable);
+		for (Constraint<V, D> constraint : constraints.get(variable)) {
+			if (!constraint.satisfied(key, assignment)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// every constraint *variable* shares with *other* holds now that *variable* is assigned
+	private boolean consistentWith(int variable, int other) {
+		V key = variables.get(variable);
+		for (int c : constraintsOf[variable]) {
+			if (contains(constraintVariables[c], other) && !allConstraints.get(c).satisfied(key, assignment)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean contains(int[] array, int value) {
+		for (int element : array) {
+			if (element == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// false if inference left some variable with no values
+	private boolean infer(int variable) {
+		switch (strategy.inference) {
+		case FORWARD_CHECKING:
+			return forwardCheck(variable, false);
+		case MAC:
+			// forward checking queues the arcs into every neighbor it shrank
+			return forwardCheck(variable, true) && propagateQueued();
+		default:
+			return true;
+		}
+	}
+
+	private boolean forwardCheck(int variable, boolean queueArcs) {
+		for (int neighbor : neighbors[variable]) {
+			if (assigned[neighbor]) {
+				continue;
+			}
+			List<D> domain = domains.get(neighbor);
+			boolean[] gone = removed[neighbor];
+			for (int i = 0; i < gone.length; i++) {
+				if (gone[i]) {
+					continue;
+				}
+				assignment.assign(neighbor, domain.get(i));
+				boolean ok = consistentWith(neighbor, variable);
+				assignment.unassign(neighbor);
+				if (!ok) {
+					remove(neighbor, i);
+					valuesPruned++;
+				}
+			}
+			if (domainSizes[neighbor] == 0) {
+				clearQueue();
+				return false;
+			}
+			if (queueArcs && domainSizes[neighbor] < gone.length) {
+				enqueueInto(neighbor, variable);
+			}
+		}
+		return true;
+	}
+
+	// AC-3 starting from every arc
+	private boolean arcConsistency() {
+		clearQueue();
+		for (int arc = 0; arc < queue.length; arc++) {
+			queue[arc] = arc;
+			queued[arc] = true;
+		}
+		queueHead = 0;
+		queueTail = 0; // the queue is full, so the tail has wrapped around
+		queueSize = queue.length;
+		return propagateQueued();
+	}
+
+	// queue the arcs revising the neighbors of *variable* against it, except from *except*
+	private void enqueueInto(int variable, int except) {
+		for (int arc : arcsInto[variable]) {
+			if (!queued[arc] && arcFrom[arc] != except) {
+				queued[arc] = true;
+				queue[queueTail] = arc;
+				queueTail = (queueTail + 1) % queue.length;
+				queueSize++;
+			}
+		}
+	}
+
+	private void clearQueue() {
+		while (queueSize > 0) {
+			queued[queue[queueHead]] = false;
+			queueHead = (queueHead + 1) % queue.length;
+			queueSize--;
+		}
+	}
+
+	// revise queued arcs until none are left, false if a domain empties
+	private boolean propagateQueued() {
+		while (queueSize > 0) {
+			int arc = queue[queueHead];
+			queueHead = (queueHead + 1) % queue.length;
+			queueSize--;
+			queued[arc] = false;
+			if (revise(arc)) {
+				int from = arcFrom[arc];
+				if (domainSizes[from] == 0) {
+					clearQueue();
+					return false;
+				}
+				enqueueInto(from, arcTo[arc]);
+			}
+		}
+		return true;
+	}
+
+	// removes the values of arc's x without support in y, true if any were removed
+	private boolean revise(int arc) {
+		int x = arcFrom[arc];
+		int y = arcTo[arc];
+		Constraint<V, D> constraint = allConstraints.get(arcConstraint[arc]);
+		List<D> xDomain = domains.get(x);
+		List<D> yDomain = domains.get(y);
+		boolean[] xGone = removed[x];
+		boolean[] yGone = removed[y];
+		int[] residue = residues[arc];
+		boolean revised = false;
+		for (int a = 0; a < xGone.length; a++) {
+			if (xGone[a] || (residue[a] >= 0 && !yGone[residue[a]])) {
+				continue;
+			}
+			int support = -1;
+			pair.clear();
+			pair.assign(x, xDomain.get(a));
+			for (int b = 0; b < yGone.length && support == -1; b++) {
+				if (!yGone[b]) {
+					pair.assign(y, yDomain.get(b));
+					if (constraint.satisfied(pair)) {
+						support = b;
+					}
+				}
+			}
+			if (support == -1) {
+				remove(x, a);
+				valuesPruned++;
+				revised = true;
+			} else {
+				residue[a] = support;
+			}
+		}
+		return revised;
+	}
+
+	private int selectVariable() {
+		int best = -1;
+		int ties = 0;
+		for (int i = 0; i < variables.size(); i++) {
+			if (assigned[i]) {
+				continue;
+			}
+			if (strategy.variableSelection == VariableSelection.FIRST_UNASSIGNED) {
+				return i;
+			}
+			int order = best == -1 ? -1 : compareForSelection(i, best);
+			if (order < 0) {
+				best = i;
+				ties = 1;
+			} else if (order == 0 && random != null && random.nextInt(++ties) == 0) {
+				best = i; // each of the tied variables ends up equally likely
+			}
+		}
+		return best;
+	}
+
+	// negative if *a* is the better variable to assign next, 0 if it's a tie
+	private int compareForSelection(int a, int b) {
+		if (domainSizes[a] != domainSizes[b]) {
+			return Integer.compare(domainSizes[a], domainSizes[b]);
+		}
+		if (strategy.variableSelection == VariableSelection.MRV_DEGREE) {
+			return Integer.compare(degree(b), degree(a));
+		}
+		return 0;
+	}
+
+	// unassigned variables sharing a constraint with *variable*
+	private int degree(int variable) {
+		int degree = 0;
+		for (int neighbor : neighbors[variable]) {
+			if (!assigned[neighbor]) {
+				degree++;
+			}
+		}
+		return degree;
+	}
+
+	// writes the values left for *variable* into *order*, returns how many
+	private int orderValues(int variable, int[] order) {
+		boolean[] gone = removed[variable];
+		int count = 0;
+		if (strategy.valueOrdering == ValueOrdering.DOMAIN_ORDER) {
+			for (int i = 0; i < gone.length; i++) {
+				if (!gone[i]) {
+					order[count++] = i;
+				}
+			}
+			if (random != null) {
+				shuffle(order, 0, count);
+			}
+			return count;
+		}
+		// score in the high bits and index in the low bits, so sorting the longs
+		// sorts by score and keeps domain order among equal scores
+		List<D> domain = domains.get(variable);
+		for (int i = 0; i < gone.length; i++) {
+			if (!gone[i]) {
+				assignment.assign(variable, domain.get(i));
+				scores[count++] = ((long) ruledOut(variable) << 32) | i;
+				assignment.unassign(variable);
+			}
+		}
+		Arrays.sort(scores, 0, count);
+		for (int i = 0; i < count; i++) {
+			order[i] = (int) scores[i];
+		}
+		if (random != null) {
+			// shuffle each run of equal scores
+			int start = 0;
+			while (start < count) {
+				int end = start + 1;
+				while (end < count && scores[end] >>> 32 == scores[start] >>> 32) {
+					end++;
+				}
+				shuffle(order, start, end);
+				start = end;
+			}
+		}
+		return count;
+	}
+
+	private void shuffle(int[] array, int from, int to) {
+		for (int i = to - 1; i > from; i--) {
+			int j = from + random.nextInt(i - from + 1);
+			int temp = array[i];
+			array[i] = array[j];
+			array[j] = temp;
+		}
+	}
+
+	// how many neighbor values the tentative value of *variable* conflicts with
+	private int ruledOut(int variable) {
+		int count = 0;
+		for (int neighbor : neighbors[variable]) {
+			if (assigned[neighbor]) {
+				continue;
+			}
+			List<D> domain = domains.get(neighbor);
+			boolean[] gone = removed[neighbor];
+			for (int i = 0; i < gone.length; i++) {
+				if (!gone[i]) {
+					assignment.assign(neighbor, domain.get(i));
+					if (!consistentWith(neighbor, variable)) {
+						count++;
+					}
+					assignment.unassign(neighbor);
+				}
+			}
+		}
+		return count;
+	}
+
+}
@@ -0,0 +1,51 @@
+// ConflictCounter.java
+// From Classic Computer Science Problems in Java Chapter 3
+// Copyright 2020 David Kopec
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package chapter3;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+// Running counts of the values placed so far, so a CountingConstraint can say
+// in constant time how many variables a value would clash with.
+// MinConflictsSolver uses these counts instead of calling satisfied, which for
+// a constraint over many variables would mean a scan per value. Each solver
+// run gets its own counter, so the constraint itself stays free of state.
+public interface ConflictCounter<V, D> {
+
+	void place(V variable, D value);
+
+	void unplace(V variable, D value);
+
+	// how many placed variables would clash with *variable* taking *value*,
+	// where *variable* itself is not placed
+	int conflicts(V variable, D value);
+
+	// Calls *action* with the placed variables counted by conflicts(variable, value),
+	// returning false if the counter couldn't name them all. QueensConstraint
+	// only knows which queen is on a line when it's the only one there.
+	default boolean conflicting(V variable, D value, Consumer<V> action) {
+		return false;
+	}
+
+	// Values of *variable* that are likely to have no conflicts, for when the
+	// domain is too big to look through, or null if the counter can't tell.
+	// QueensConstraint gives the rows no queen is in. The list may be a view
+	// that changes as values are placed.
+	default List<D> freeValues(V variable) {
+		return null;
+	}
+}
@@ -31,4 +31,11 @@ public abstract class Constraint<V, D> {
 
 	// must be overridden by subclasses
 	public abstract boolean satisfied(Map<V, D> assignment);
+
+	// The same answer as satisfied(assignment), given that *variable* was just
+	// assigned and the assignment without it already satisfied this constraint.
+	// Override it to check only what *variable* can break; CSPSolver calls this.
+	public boolean satisfied(V variable, Map<V, D> assignment) {
+		return satisfied(assignment);
+	}
 }
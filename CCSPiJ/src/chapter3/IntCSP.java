@@ -0,0 +1,581 @@
+// IntCSP.java
+// From Classic Computer Science Problems in Java Chapter 3
+// Copyright 2020 David Kopec
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package chapter3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// A CSP whose variables are the ints 0 until variableCount and whose values
+// are the ints 0 through maxValue. Each domain is a bitset, a run of longs
+// in one flat array, so removing a value is a single AND and a domain's size
+// is a bitCount. A removal saves the word it changed on a trail, and undoing
+// it writes the word back. Constraints do their own propagation. Once a variable
+// is assigned, each of its constraints removes the values the assignment
+// rules out from the other variables. The search is backtracking with
+// minimum-remaining-values, trying values smallest first. Optionally it can break
+// ties and pick the first value at random, with a node limit for restarts.
+public class IntCSP {
+
+	public interface IntConstraint {
+		// the variables this constraint is over
+		int[] variables();
+
+		// *variable* has just been given *value*. Remove, with IntCSP.remove or
+		// restrict, every value of another variable this rules out, and return
+		// false if the constraint can no longer be met.
+		boolean propagate(IntCSP csp, int variable, int value);
+	}
+
+	private final int variableCount;
+	private final int maxValue;
+	private final int words; // longs per domain
+	private final long[] initial; // the domains before search
+	private final List<IntConstraint> constraints = new ArrayList<>();
+
+	// search state
+	private long[] bits;
+	private int[] sizes;
+	private boolean[] assigned;
+	private int assignedCount;
+	private int[] trailPositions = new int[256];
+	private long[] trailWords = new long[256];
+	private int trailSize;
+	private IntConstraint[][] constraintsOf;
+
+	private long nodes;
+	private long backtracks;
+	private Random random; // breaks MRV ties when set
+	private long nodeLimit = Long.MAX_VALUE;
+	private boolean stopped;
+
+	public IntCSP(int variableCount, int maxValue) {
+		if (variableCount < 0 || maxValue < 0) {
+			throw new IllegalArgumentException("variableCount and maxValue must be >= 0");
+		}
+		this.variableCount = variableCount;
+		this.maxValue = maxValue;
+		words = (maxValue >>> 6) + 1;
+		initial = new long[variableCount * words];
+		// every domain starts full
+		for (int variable = 0; variable < variableCount; variable++) {
+			for (int value = 0; value <= maxValue; value++) {
+				initial[variable * words + (value >>> 6)] |= 1L << value;
+			}
+		}
+		bits = initial;
+		sizes = new int[variableCount];
+		Arrays.fill(sizes, maxValue + 1);
+		assigned = new boolean[variableCount];
+	}
+
+	public int getVariableCount() {
+		return variableCount;
+	}
+
+	public int getMaxValue() {
+		return maxValue;
+	}
+
+	public void addConstraint(IntConstraint constraint) {
+		for (int variable : constraint.variables()) {
+			if (variable < 0 || variable >= variableCount) {
+				throw new IllegalArgumentException("Variable in constraint not in CSP");
+			}
+		}
+		constraints.add(constraint);
+	}
+
+	// values assigned during the last solve, including ones later undone
+	public long getNodes() {
+		return nodes;
+	}
+
+	public long getBacktracks() {
+		return backtracks;
+	}
+
+	// Breaks ties between variables with equally few values at random, so
+	// repeated solves explore different parts of the tree. null turns it off.
+	public void setRandom(Random random) {
+		this.random = random;
+	}
+
+	// give up a solve after assigning this many values
+	public void setNodeLimit(long nodeLimit) {
+		this.nodeLimit = nodeLimit;
+	}
+
+	// true if the last solve gave up because of the node limit, rather than
+	// because it had been through every assignment
+	public boolean wasStopped() {
+		return stopped;
+	}
+
+	public boolean contains(int variable, int value) {
+		if (value < 0 || value > maxValue) {
+			return false;
+		}
+		return (bits[variable * words + (value >>> 6)] & (1L << value)) != 0;
+	}
+
+	public int size(int variable) {
+		return sizes[variable];
+	}
+
+	public boolean isAssigned(int variable) {
+		return assigned[variable];
+	}
+
+	// the smallest value left, -1 if there are none
+	public int min(int variable) {
+		return nextValue(variable, 0);
+	}
+
+	// the largest value left, -1 if there are none
+	public int max(int variable) {
+		int base = variable * words;
+		for (int w = words - 1; w >= 0; w--) {
+			if (bits[base + w] != 0) {
+				return (w << 6) + 63 - Long.numberOfLeadingZeros(bits[base + w]);
+			}
+		}
+		return -1;
+	}
+
+	// the smallest value left that is at least *from*, -1 if there are none
+	public int nextValue(int variable, int from) {
+		if (from > maxValue) {
+			return -1;
+		}
+		int base = variable * words;
+		int w = from >>> 6;
+		long word = bits[base + w] & (-1L << from);
+		while (true) {
+			if (word != 0) {
+				return (w << 6) + Long.numberOfTrailingZeros(word);
+			}
+			if (++w == words) {
+				return -1;
+			}
+			word = bits[base + w];
+		}
+	}
+
+	// Takes *value* out of *variable*'s domain, returns false if the domain is
+	// now empty. Before solve these change the starting domains for good, during
+	// it they are undone on backtracking.
+	public boolean remove(int variable, int value) {
+		if (value >= 0 && value <= maxValue) {
+			int position = variable * words + (value >>> 6);
+			long word = bits[position];
+			long bit = 1L << value;
+			if ((word & bit) != 0) {
+				setWord(position, word & ~bit);
+				sizes[variable]--;
+			}
+		}
+		return sizes[variable] > 0;
+	}
+
+	// removes every value below *min* and above *max*, false if nothing is left
+	public boolean restrict(int variable, int min, int max) {
+		int base = variable * words;
+		for (int w = 0; w < words; w++) {
+			int low = w << 6;
+			long mask = -1L;
+			if (min > low) {
+				mask = min >= low + 64 ? 0 : mask & (-1L << (min - low));
+			}
+			if (max < low + 63) {
+				mask = max < low ? 0 : mask & (-1L >>> (63 - (max - low)));
+			}
+			long word = bits[base + w];
+			if ((word & mask) != word) {
+				setWord(base + w, word & mask);
+				sizes[variable] -= Long.bitCount(word) - Long.bitCount(word & mask);
+			}
+		}
+		return sizes[variable] > 0;
+	}
+
+	private void setWord(int position, long word) {
+		if (bits != initial) {
+			if (trailSize == trailWords.length) {
+				trailPositions = Arrays.copyOf(trailPositions, trailSize * 2);
+				trailWords = Arrays.copyOf(trailWords, trailSize * 2);
+			}
+			trailPositions[trailSize] = position;
+			trailWords[trailSize++] = bits[position];
+		}
+		bits[position] = word;
+	}
+
+	// write back every word changed since the trail was *mark* long
+	private void restore(int mark) {
+		while (trailSize > mark) {
+			int position = trailPositions[--trailSize];
+			long old = trailWords[trailSize];
+			sizes[position / words] += Long.bitCount(old) - Long.bitCount(bits[position]);
+			bits[position] = old;
+		}
+	}
+
+	// the value of every variable, by variable, or null if there is no solution
+	public int[] solve() {
+		// search on a copy, so the starting domains survive for the next solve
+		long[] start = initial;
+		bits = initial.clone();
+		trailSize = 0;
+		assignedCount = 0;
+		Arrays.fill(assigned, false);
+		nodes = 0;
+		backtracks = 0;
+		stopped = false;
+		buildConstraintLists();
+		try {
+			return search();
+		} finally {
+			bits = start;
+			for (int variable = 0; variable < variableCount; variable++) {
+				sizes[variable] = 0;
+				for (int w = 0; w < words; w++) {
+					sizes[variable] += Long.bitCount(initial[variable * words + w]);
+				}
+			}
+			Arrays.fill(assigned, false);
+		}
+	}
+
+	private void buildConstraintLists() {
+		int[] counts = new int[variableCount];
+		for (IntConstraint constraint : constraints) {
+			for (int variable : constraint.variables()) {
+				counts[variable]++;
+			}
+		}
+		constraintsOf = new IntConstraint[variableCount][];
+		for (int variable = 0; variable < variableCount; variable++) {
+			constraintsOf[variable] = new IntConstraint[counts[variable]];
+			counts[variable] = 0;
+		}
+		for (IntConstraint constraint : constraints) {
+			for (int variable : constraint.variables()) {
+				constraintsOf[variable][counts[variable]++] = constraint;
+			}
+		}
+	}
+
+	private int[] search() {
+		for (int size : sizes) {
+			if (size == 0) {
+				return null;
+			}
+		}
+		// One level per assigned variable. Each level tries its values in order
+		// from *start*, wrapping around to 0, and remembers the one it last tried.
+		int[] stackVariables = new int[variableCount];
+		int[] stackStarts = new int[variableCount];
+		int[] stackValues = new int[variableCount];
+		boolean[] stackWrapped = new boolean[variableCount];
+		int[] stackMarks = new int[variableCount];
+		if (variableCount == 0) {
+			return new int[0];
+		}
+		int depth = 0;
+		boolean push = true;
+		while (true) {
+			if (push) {
+				int variable = selectVariable();
+				stackVariables[depth] = variable;
+				stackStarts[depth] = random == null ? 0 : min(variable) + random.nextInt(max(variable) - min(variable) + 1);
+				stackValues[depth] = stackStarts[depth] - 1;
+				stackWrapped[depth] = false;
+				depth++;
+			}
+			if (depth == 0) {
+				return null; // went through everything and never found a solution
+			}
+			int level = depth - 1;
+			int variable = stackVariables[level];
+			// take back whatever this level tried last, which also puts its
+			// domain back the way it was when the level was pushed
+			if (assigned[variable]) {
+				assigned[variable] = false;
+				assignedCount--;
+				restore(stackMarks[level]);
+			}
+			int value = nextValue(variable, stackValues[level] + 1);
+			if (value == -1 && !stackWrapped[level]) {
+				stackWrapped[level] = true;
+				value = nextValue(variable, 0);
+			}
+			if (value == -1 || (stackWrapped[level] && value >= stackStarts[level])) {
+				depth--;
+				backtracks++;
+				push = false;
+				continue;
+			}
+			if (nodes == nodeLimit) {
+				stopped = true;
+				return null;
+			}
+			stackValues[level] = value;
+			stackMarks[level] = trailSize;
+			nodes++;
+			// assign by shrinking the domain to the one value
+			restrict(variable, value, value);
+			assigned[variable] = true;
+			assignedCount++;
+			// on failure the assignment is undone at the top of the loop
+			push = propagate(variable, value);
+			if (push && assignedCount == variableCount) {
+				int[] solution = new int[variableCount];
+				for (int v = 0; v < variableCount; v++) {
+					solution[v] = min(v);
+				}
+				return solution;
+			}
+		}
+	}
+
+	private boolean propagate(int variable, int value) {
+		for (IntConstraint constraint : constraintsOf[variable]) {
+			if (!constraint.propagate(this, variable, value)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// minimum remaining values, the first such variable on ties unless random is set
+	private int selectVariable() {
+		int best = -1;
+		int ties = 0;
+		for (int variable = 0; variable < variableCount; variable++) {
+			if (assigned[variable]) {
+				continue;
+			}
+			if (best == -1 || sizes[variable] < sizes[best]) {
+				best = variable;
+				ties = 1;
+				if (sizes[best] == 1) {
+					break; // can't do better than a forced value
+				}
+			} else if (random != null && sizes[variable] == sizes[best] && random.nextInt(++ties) == 0) {
+				best = variable; // each of the tied variables ends up equally likely
+			}
+		}
+		return best;
+	}
+
+	// no two of *variables* take the same value
+	public static final class AllDifferent implements IntConstraint {
+		private final int[] variables;
+
+		public AllDifferent(int... variables) {
+			this.variables = variables;
+		}
+
+		@Override
+		public int[] variables() {
+			return variables;
+		}
+
+		@Override
+		public boolean propagate(IntCSP csp, int variable, int value) {
+			for (int other : variables) {
+				// an assigned variable with this value is emptied, which fails
+				if (other != variable && !csp.remove(other, value)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	// the sum of coefficients[i] * variables[i] is *total*, kept to bounds
+	// consistency: each variable is restricted to what the smallest and
+	// largest values of the others leave possible
+	public static final class LinearEquation implements IntConstraint {
+		private final int[] coefficients;
+		private final int[] variables;
+		private final long total;
+
+		public LinearEquation(int[] coefficients, int[] variables, long total) {
+			if (coefficients.length != variables.length) {
+				throw new IllegalArgumentException("Every variable needs a coefficient");
+			}
+			this.coefficients = coefficients;
+			this.variables = variables;
+			this.total = total;
+		}
+
+		@Override
+		public int[] variables() {
+			return variables;
+		}
+
+		@Override
+		public boolean propagate(IntCSP csp, int variable, int value) {
+			boolean changed = true;
+			while (changed) {
+				changed = false;
+				long low = 0;
+				long high = 0;
+				for (int i = 0; i < variables.length; i++) {
+					low += termMin(csp, i);
+					high += termMax(csp, i);
+				}
+				if (total < low || total > high) {
+					return false;
+				}
+				for (int i = 0; i < variables.length; i++) {
+					// what this term may be given the range of the rest
+					long termLow = total - (high - termMax(csp, i));
+					long termHigh = total - (low - termMin(csp, i));
+					int c = coefficients[i];
+					if (c == 0) {
+						continue; // adds nothing whatever its value
+					}
+					long min = c > 0 ? ceilDiv(termLow, c) : ceilDiv(termHigh, c);
+					long max = c > 0 ? Math.floorDiv(termHigh, c) : Math.floorDiv(termLow, c);
+					int v = variables[i];
+					if (min > csp.min(v) || max < csp.max(v)) {
+						// clamped so the casts can't overflow
+						int lowest = (int) Math.min(Math.max(min, 0), csp.getMaxValue() + 1L);
+						int highest = (int) Math.max(Math.min(max, csp.getMaxValue()), -1L);
+						if (!csp.restrict(v, lowest, highest)) {
+							return false;
+						}
+						changed = true;
+					}
+				}
+			}
+			return true;
+		}
+
+		private long termMin(IntCSP csp, int i) {
+			int c = coefficients[i];
+			return (long) c * (c > 0 ? csp.min(variables[i]) : csp.max(variables[i]));
+		}
+
+		private long termMax(IntCSP csp, int i) {
+			int c = coefficients[i];
+			return (long) c * (c > 0 ? csp.max(variables[i]) : csp.min(variables[i]));
+		}
+
+		private static long ceilDiv(long a, long b) {
+			return -Math.floorDiv(-a, b);
+		}
+	}
+
+	// variable c is the row of the queen in column c, and no two queens share
+	// a row or a diagonal
+	public static final class Queens implements IntConstraint {
+		private final int[] columns;
+
+		public Queens(int n) {
+			columns = new int[n];
+			Arrays.setAll(columns, column -> column);
+		}
+
+		@Override
+		public int[] variables() {
+			return columns;
+		}
+
+		@Override
+		public boolean propagate(IntCSP csp, int column, int row) {
+			for (int other : columns) {
+				if (other != column) {
+					int distance = other - column;
+					// same row, then both diagonals
+					if (!csp.remove(other, row) || !csp.remove(other, row + distance)
+							|| !csp.remove(other, row - distance)) {
+						return false;
+					}
+				}
+			}
+			return true;
+		}
+	}
+
+	public static void main(String[] args) {
+		// SEND + MORE = MONEY, letters in the order S E N D M O R Y
+		IntCSP money = new IntCSP(8, 9);
+		int s = 0, e = 1, n = 2, d = 3, m = 4, o = 5, r = 6, y = 7;
+		money.restrict(s, 1, 9); // no leading zeros
+		money.restrict(m, 1, 9);
+		money.addConstraint(new AllDifferent(s, e, n, d, m, o, r, y));
+		// SEND + MORE - MONEY = 0, collected by letter
+		money.addConstraint(new LinearEquation(new int[] { 1000, 91, -90, 1, -9000, -900, 10, -1 },
+				new int[] { s, e, n, d, m, o, r, y }, 0));
+		System.out.println(Arrays.toString(money.solve()) + " in " + money.getNodes() + " nodes");
+
+		// 8 queens, then 2,000 queens, restarting with new random choices whenever
+		// a run takes more than a few nodes per queen
+		IntCSP eight = new IntCSP(8, 7);
+		eight.addConstraint(new Queens(8));
+		System.out.println(Arrays.toString(eight.solve()) + " in " + eight.getNodes() + " nodes");
+		int size = 2_000;
+		IntCSP queens = new IntCSP(size, size - 1);
+		queens.addConstraint(new Queens(size));
+		queens.setRandom(new Random(1));
+		long start = System.nanoTime();
+		int[] rows = null;
+		int runs = 0;
+		for (long limit = 2L * size; rows == null; limit += size) {
+			queens.setNodeLimit(limit);
+			rows = queens.solve();
+			runs++;
+			if (rows == null && !queens.wasStopped()) {
+				break; // searched everything
+			}
+		}
+		System.out.printf("%d queens: %s after %d runs, %d ms%n", size, rows == null ? "no solution" : "solved",
+				runs, (System.nanoTime() - start) / 1_000_000);
+
+		// 10,000 variables: a 100 x 100 king's graph, where every cell touches
+		// its eight neighbors, colored with 4 colors
+		int side = 100;
+		IntCSP kings = new IntCSP(side * side, 3);
+		for (int row = 0; row < side; row++) {
+			for (int column = 0; column < side; column++) {
+				int cell = row * side + column;
+				if (column + 1 < side) {
+					kings.addConstraint(new AllDifferent(cell, cell + 1));
+				}
+				if (row + 1 < side) {
+					kings.addConstraint(new AllDifferent(cell, cell + side));
+					if (column + 1 < side) {
+						kings.addConstraint(new AllDifferent(cell, cell + side + 1));
+					}
+					if (column > 0) {
+						kings.addConstraint(new AllDifferent(cell, cell + side - 1));
+					}
+				}
+			}
+		}
+		start = System.nanoTime();
+		int[] colors = kings.solve();
+		System.out.printf("king's graph: %s in %d nodes, %d ms%n", colors == null ? "no coloring" : "colored",
+				kings.getNodes(), (System.nanoTime() - start) / 1_000_000);
+	}
+
+}
@@ -17,8 +17,10 @@
 package chapter3;
 
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public final class MapColoringConstraint extends Constraint<String, String> {
 
@@ -74,6 +76,24 @@ public final class MapColoringConstraint extends Constraint<String, String> {
 		} else {
 			System.out.println(solution);
 		}
+
+		// with Western Australia and South Australia already colored, arc
+		// consistency alone settles every place but Tasmania
+		Map<String, List<String>> fixed = new HashMap<>(domains);
+		fixed.put(WESTERN, List.of("red"));
+		fixed.put(SOUTH, List.of("blue"));
+		CSP<String, String> partial = new CSP<>(variables, fixed);
+		Set<Constraint<String, String>> borders = new LinkedHashSet<>();
+		for (String variable : variables) {
+			borders.addAll(csp.getConstraints(variable));
+		}
+		borders.forEach(partial::addConstraint);
+		System.out.println(partial.arcConsistentDomains());
+		CSPSolver<String, String> solver = new CSPSolver<>(partial, SearchStrategy.MAC);
+		System.out.println(solver.solve());
+		System.out.println("AC-3 removed " + solver.getValuesPrunedBeforeSearch() + " of "
+				+ solver.getTotalValues() + " values before search, then " + solver.getNodes()
+				+ " nodes, " + solver.getBacktracks() + " backtracks");
 	}
 
 }
@@ -0,0 +1,438 @@
+// MinConflictsSolver.java
+// From Classic Computer Science Problems in Java Chapter 3
+// Copyright 2020 David Kopec
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package chapter3;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Local search for big CSPs that backtracking can't finish. Every variable
+// starts with a value, chosen greedily from a few random samples, and then
+// one conflicted variable at a time moves to the value with the fewest
+// conflicts (min-conflicts). The values are looked at from a random one on,
+// stopping at the first without conflicts, and at most MAX_SCAN of a big
+// domain are looked at. Ties are broken at random, a small share of moves
+// pick any value at all (random walk noise), and a variable may not go straight
+// back to the value it just left (a tabu list one value long per variable)
+// unless that value has no conflicts. A run that goes on too long restarts
+// from a fresh start, until a solution is found or the time budget is spent.
+//
+// Constraints that implement CountingConstraint get a ConflictCounter for
+// each run, which keeps counts up to date as values move, names the variables
+// on the other side of a conflict, and offers values likely to be free, tried
+// before the rest of the domain. Those make a million queens a matter of
+// seconds. Any other constraint is checked with satisfied on the full
+// assignment, and whether it is currently violated is remembered so a
+// variable's conflicts are known without checking again.
+// Nothing here proves there is no solution; running out of time returns null.
+public class MinConflictsSolver<V, D> {
+
+	// values tried for each variable when building the starting assignment
+	private static final int INITIAL_SAMPLES = 32;
+	// values of the domain looked at in a move, when none the counters know
+	// are free will do
+	private static final int MAX_SCAN = 1024;
+
+	private final List<V> variables;
+	private final Map<V, Integer> indices;
+	private final List<List<D>> domains; // by variable index
+	private final List<CountingConstraint<V, D>> counting = new ArrayList<>();
+	private final List<ConflictCounter<V, D>> counters = new ArrayList<>(); // by index into counting
+	private final int[][] countersOf; // by variable, indices into counting
+	private final List<Constraint<V, D>> checked = new ArrayList<>(); // the rest of the constraints
+	private final int[][] checkedOf; // by variable, indices into checked
+	private final int[][] checkedVariables; // by index into checked
+	private final boolean[] violated; // by index into checked
+
+	private final ArrayAssignment<V, D> assignment;
+	// the variables that may be in conflict, packed so one can be picked at random
+	private final int[] candidates;
+	private final int[] candidatePositions; // -1 for a variable that isn't a candidate
+	private int candidateCount;
+	// set when a counter couldn't name the other side of a conflict
+	private boolean recheck;
+	private long evaluations; // values tried, to spread out the rechecks
+	private long evaluationsAtRecheck;
+	private final List<D> tabuValues; // the value each variable last left
+	private final long[] tabuUntil; // the step until which it may not return to it
+
+	private Random random = new Random();
+	private double noise = 0.02;
+	private int tabuTenure = 10;
+	private long maxSteps;
+
+	private long steps;
+	private long restarts;
+
+	// the best value found so far in a move
+	private D best;
+	private int bestConflicts;
+	private int ties; // values with bestConflicts seen, for picking one at random
+
+	@SuppressWarnings("unchecked")
+	public MinConflictsSolver(CSP<V, D> csp) {
+		variables = csp.getVariables();
+		int n = variables.size();
+		indices = new HashMap<>();
+		for (int i = 0; i < n; i++) {
+			indices.put(variables.get(i), i);
+		}
+		domains = new ArrayList<>(n);
+		countersOf = new int[n][];
+		checkedOf = new int[n][];
+		Map<Constraint<V, D>, Integer> ids = new IdentityHashMap<>();
+		List<List<Integer>> checkedVariableLists = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			V variable = variables.get(i);
+			domains.add(csp.getDomain(variable));
+			List<Integer> counted = new ArrayList<>();
+			List<Integer> checking = new ArrayList<>();
+			for (Constraint<V, D> constraint : csp.getConstraints(variable)) {
+				Integer id = ids.get(constraint);
+				if (id == null) {
+					if (constraint instanceof CountingConstraint) {
+						id = counting.size();
+						counting.add((CountingConstraint<V, D>) constraint);
+					} else {
+						id = checked.size();
+						checked.add(constraint);
+						checkedVariableLists.add(new ArrayList<>());
+					}
+					ids.put(constraint, id);
+				}
+				if (constraint instanceof CountingConstraint) {
+					counted.add(id);
+				} else {
+					checking.add(id);
+					checkedVariableLists.get(id).add(i);
+				}
+			}
+			countersOf[i] = counted.stream().mapToInt(Integer::intValue).toArray();
+			checkedOf[i] = checking.stream().mapToInt(Integer::intValue).toArray();
+		}
+		checkedVariables = new int[checked.size()][];
+		for (int c = 0; c < checked.size(); c++) {
+			checkedVariables[c] = checkedVariableLists.get(c).stream().mapToInt(Integer::intValue).toArray();
+		}
+		violated = new boolean[checked.size()];
+		assignment = new ArrayAssignment<>(variables, indices);
+		candidates = new int[n];
+		candidatePositions = new int[n];
+		tabuValues = new ArrayList<>(Collections.nCopies(n, null));
+		tabuUntil = new long[n];
+		maxSteps = Math.max(10_000, 10L * n);
+	}
+
+	public void setRandom(Random random) {
+		this.random = random;
+	}
+
+	// the share of moves that pick a random value instead of the best one
+	public void setNoise(double noise) {
+		this.noise = noise;
+	}
+
+	// how many steps a variable must wait before going back to the value it left
+	public void setTabuTenure(int tabuTenure) {
+		this.tabuTenure = tabuTenure;
+	}
+
+	// steps before giving up on a run and restarting
+	public void setMaxSteps(long maxSteps) {
+		this.maxSteps = maxSteps;
+	}
+
+	// moves made during the last solve
+	public long getSteps() {
+		return steps;
+	}
+
+	public long getRestarts() {
+		return restarts;
+	}
+
+	// a solution, or null if none was found within *budget*
+	public Map<V, D> solve(Duration budget) {
+		long deadline = System.nanoTime() + budget.toNanos();
+		steps = 0;
+		restarts = 0;
+		while (System.nanoTime() < deadline) {
+			initialize();
+			for (long runSteps = 0; runSteps < maxSteps;) {
+				// rechecking every variable is only worth it once the moves have
+				// done as much work since the last time
+				if (recheck && evaluations - evaluationsAtRecheck >= variables.size()) {
+					recheck = false;
+					verify();
+				}
+				if (candidateCount == 0) {
+					if (verify()) {
+						return new HashMap<>(assignment);
+					}
+					continue;
+				}
+				if ((steps & 0x3FF) == 0 && System.nanoTime() >= deadline) {
+					return null;
+				}
+				int variable = candidates[random.nextInt(candidateCount)];
+				if (currentConflicts(variable) == 0) {
+					removeCandidate(variable); // conflicts elsewhere were fixed
+					continue;
+				}
+				move(variable);
+				steps++;
+				runSteps++;
+			}
+			restarts++;
+		}
+		return null;
+	}
+
+	// a greedy starting assignment, each variable in random order taking the
+	// best of a few random values given the ones placed before it
+	private void initialize() {
+		counters.clear();
+		for (CountingConstraint<V, D> constraint : counting) {
+			counters.add(constraint.newCounter());
+		}
+		assignment.clear();
+		while (candidateCount > 0) {
+			removeCandidate(candidates[0]);
+		}
+		for (int i = 0; i < variables.size(); i++) {
+			candidatePositions[i] = -1;
+			tabuUntil[i] = 0;
+		}
+		int[] order = new int[variables.size()];
+		for (int i = 0; i < order.length; i++) {
+			int j = random.nextInt(i + 1); // shuffled as it's filled
+			order[i] = order[j];
+			order[j] = i;
+		}
+		for (int variable : order) {
+			// sampled from the values some counter counts no conflicts for, if any
+			List<D> values = domains.get(variable);
+			for (int c : countersOf[variable]) {
+				List<D> free = counters.get(c).freeValues(variables.get(variable));
+				if (free != null && !free.isEmpty()) {
+					values = free;
+					break;
+				}
+			}
+			D best = null;
+			int bestConflicts = Integer.MAX_VALUE;
+			for (int sample = 0; sample < INITIAL_SAMPLES && bestConflicts > 0; sample++) {
+				D value = values.get(random.nextInt(values.size()));
+				int conflicts = conflictsIf(variable, value);
+				if (conflicts < bestConflicts) {
+					best = value;
+					bestConflicts = conflicts;
+				}
+			}
+			place(variable, best, bestConflicts);
+		}
+	}
+
+	// one min-conflicts step for *variable*
+	private void move(int variable) {
+		D old = assignment.valueOf(variable);
+		unplace(variable);
+		List<D> domain = domains.get(variable);
+		if (random.nextDouble() < noise) {
+			best = domain.get(random.nextInt(domain.size()));
+			bestConflicts = conflictsIf(variable, best);
+		} else {
+			best = null;
+			bestConflicts = Integer.MAX_VALUE;
+			ties = 0;
+			D tabu = steps < tabuUntil[variable] ? tabuValues.get(variable) : null;
+			// the values a counter knows are free for it are the likeliest to
+			// have no conflicts at all, so they go first
+			for (int c : countersOf[variable]) {
+				List<D> free = counters.get(c).freeValues(variables.get(variable));
+				if (free != null && bestConflicts > 0) {
+					scan(variable, free, free.size(), tabu);
+				}
+			}
+			if (bestConflicts > 0) {
+				scan(variable, domain, MAX_SCAN, tabu);
+			}
+			if (best == null) {
+				best = tabu; // it was the only value
+				bestConflicts = conflictsIf(variable, best);
+			}
+		}
+		if (!best.equals(old)) {
+			tabuValues.set(variable, old);
+			tabuUntil[variable] = steps + tabuTenure;
+		}
+		place(variable, best, bestConflicts);
+	}
+
+	// Looks at up to *limit* of *values*, from a random one on, for one with
+	// fewer conflicts than *best*, stopping at the first with none. Ties are
+	// broken at random, and *tabu* is passed over unless it has no conflicts.
+	private void scan(int variable, List<D> values, int limit, D tabu) {
+		int size = values.size();
+		int first = size == 0 ? 0 : random.nextInt(size);
+		for (int i = 0; i < Math.min(limit, size) && bestConflicts > 0; i++) {
+			D value = values.get((first + i) % size);
+			int conflicts = conflictsIf(variable, value);
+			if (conflicts > 0 && value.equals(tabu)) {
+				continue;
+			}
+			if (conflicts < bestConflicts) {
+				best = value;
+				bestConflicts = conflicts;
+				ties = 1;
+			} else if (conflicts == bestConflicts && random.nextInt(++ties) == 0) {
+				best = value;
+			}
+		}
+	}
+
+	// conflicts if *variable*, which must not be placed in the counters, took *value*
+	private int conflictsIf(int variable, D value) {
+		evaluations++;
+		V key = variables.get(variable);
+		int conflicts = 0;
+		for (int c : countersOf[variable]) {
+			conflicts += counters.get(c).conflicts(key, value);
+		}
+		if (checkedOf[variable].length > 0) {
+			assignment.assign(variable, value);
+			for (int c : checkedOf[variable]) {
+				if (!checked.get(c).satisfied(assignment)) {
+					conflicts++;
+				}
+			}
+		}
+		return conflicts;
+	}
+
+	private int currentConflicts(int variable) {
+		V key = variables.get(variable);
+		D value = assignment.valueOf(variable);
+		int conflicts = 0;
+		for (int c : countersOf[variable]) {
+			ConflictCounter<V, D> counter = counters.get(c);
+			counter.unplace(key, value);
+			conflicts += counter.conflicts(key, value);
+			counter.place(key, value);
+		}
+		for (int c : checkedOf[variable]) {
+			if (violated[c]) {
+				conflicts++;
+			}
+		}
+		return conflicts;
+	}
+
+	// gives *variable* *value*, which has *conflicts* conflicts
+	private void place(int variable, D value, int conflicts) {
+		V key = variables.get(variable);
+		assignment.assign(variable, value);
+		for (int c : countersOf[variable]) {
+			ConflictCounter<V, D> counter = counters.get(c);
+			if (conflicts > 0 && !counter.conflicting(key, value, other -> addCandidate(indices.get(other)))) {
+				recheck = true;
+			}
+			counter.place(key, value);
+		}
+		for (int c : checkedOf[variable]) {
+			boolean nowViolated = !checked.get(c).satisfied(assignment);
+			if (nowViolated && !violated[c]) {
+				for (int other : checkedVariables[c]) {
+					addCandidate(other);
+				}
+			}
+			violated[c] = nowViolated;
+		}
+		if (conflicts > 0) {
+			addCandidate(variable);
+		} else {
+			removeCandidate(variable);
+		}
+	}
+
+	private void unplace(int variable) {
+		V key = variables.get(variable);
+		D actual = assignment.valueOf(variable);
+		for (int c : countersOf[variable]) {
+			counters.get(c).unplace(key, actual);
+		}
+	}
+
+	// Adds every variable in conflict to the candidates, after a counter couldn't
+	// say which variables a move put in conflict, and once more before calling
+	// it solved.
+	private boolean verify() {
+		evaluationsAtRecheck = evaluations;
+		for (int variable = 0; variable < variables.size(); variable++) {
+			if (currentConflicts(variable) > 0) {
+				addCandidate(variable);
+			}
+		}
+		return candidateCount == 0;
+	}
+
+	private void addCandidate(int variable) {
+		if (candidatePositions[variable] == -1) {
+			candidatePositions[variable] = candidateCount;
+			candidates[candidateCount++] = variable;
+		}
+	}
+
+	private void removeCandidate(int variable) {
+		int position = candidatePositions[variable];
+		if (position != -1) {
+			// move the last candidate into the gap
+			int last = candidates[--candidateCount];
+			candidates[position] = last;
+			candidatePositions[last] = position;
+			candidatePositions[variable] = -1;
+		}
+	}
+
+	public static void main(String[] args) {
+		// a million queens, rows and columns numbered from 1 as in QueensConstraint
+		int n = 1_000_000;
+		List<Integer> columns = new ArrayList<>(n);
+		for (int column = 1; column <= n; column++) {
+			columns.add(column);
+		}
+		Map<Integer, List<Integer>> rows = new HashMap<>();
+		for (Integer column : columns) {
+			rows.put(column, columns); // every column can use every row
+		}
+		CSP<Integer, Integer> csp = new CSP<>(columns, rows);
+		csp.addConstraint(new QueensConstraint(columns));
+		MinConflictsSolver<Integer, Integer> solver = new MinConflictsSolver<>(csp);
+		solver.setRandom(new Random(1));
+		long start = System.nanoTime();
+		Map<Integer, Integer> solution = solver.solve(Duration.ofMinutes(1));
+		System.out.printf("%d queens: %s after %d steps and %d restarts, %d ms%n", n,
+				solution == null ? "no solution found" : "solved", solver.getSteps(), solver.getRestarts(),
+				(System.nanoTime() - start) / 1_000_000);
+	}
+
+}
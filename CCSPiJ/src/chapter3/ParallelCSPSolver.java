@@ -0,0 +1,187 @@
+// ParallelCSPSolver.java
+// From Classic Computer Science Problems in Java Chapter 3
+// Copyright 2020 David Kopec
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package chapter3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Two ways of finding one solution of a CSP on several threads, both aimed at
+// time to the first solution rather than total work:
+//  - solve splits the top of the search tree into subproblems, one for each
+//    value of the variable the strategy would branch on, and keeps splitting
+//    while the pool is short of queued work. Subproblems are ForkJoinTasks,
+//    so idle threads steal them.
+//  - portfolio races several strategies, each breaking ties at random and
+//    restarting after a growing number of nodes.
+// Either way the first solution found stops everything else. Every task works
+// on its own CSPSolver, so the constraints must be safe to call from several
+// threads at once (the ones in this package keep no state).
+public class ParallelCSPSolver<V, D> {
+
+	private static final int MAX_SPLIT_DEPTH = 16;
+	// subproblems split while fewer than this many tasks are waiting
+	private static final int SURPLUS_TASKS = 2;
+	// nodes before the first restart, later runs get multiples of it
+	private static final long RESTART_NODES = 1_000;
+
+	private final CSP<V, D> csp;
+	private final ForkJoinPool pool;
+
+	public ParallelCSPSolver(CSP<V, D> csp) {
+		this(csp, ForkJoinPool.commonPool());
+	}
+
+	public ParallelCSPSolver(CSP<V, D> csp, ForkJoinPool pool) {
+		this.csp = csp;
+		this.pool = pool;
+	}
+
+	// the first solution any subproblem finds, or null if there is none
+	public Map<V, D> solve(SearchStrategy strategy) {
+		AtomicReference<Map<V, D>> solution = new AtomicReference<>();
+		pool.invoke(new Subproblem(strategy, new int[0], new int[0], solution));
+		return solution.get();
+	}
+
+	// the assignments leading to a subproblem, by variable and value index
+	private class Subproblem extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final SearchStrategy strategy;
+		private final int[] variables, values;
+		private final AtomicReference<Map<V, D>> solution;
+
+		Subproblem(SearchStrategy strategy, int[] variables, int[] values, AtomicReference<Map<V, D>> solution) {
+			this.strategy = strategy;
+			this.variables = variables;
+			this.values = values;
+			this.solution = solution;
+		}
+
+		@Override
+		protected void compute() {
+			if (solution.get() != null) {
+				return; // a sibling already found one
+			}
+			CSPSolver<V, D> solver = new CSPSolver<>(csp, strategy);
+			solver.setStop(() -> solution.get() != null);
+			if (!solver.start(variables, values)) {
+				return;
+			}
+			int variable = solver.branchVariable();
+			if (variable != -1 && variables.length < MAX_SPLIT_DEPTH
+					&& getSurplusQueuedTaskCount() < SURPLUS_TASKS) {
+				// one subproblem for each value of the branching variable
+				List<Subproblem> children = new ArrayList<>();
+				for (int value : solver.branchValues()) {
+					int[] childVariables = Arrays.copyOf(variables, variables.length + 1);
+					int[] childValues = Arrays.copyOf(values, values.length + 1);
+					childVariables[variables.length] = variable;
+					childValues[values.length] = value;
+					children.add(new Subproblem(strategy, childVariables, childValues, solution));
+				}
+				invokeAll(children);
+			} else if (solver.next()) {
+				solution.compareAndSet(null, solver.currentSolution());
+			}
+		}
+	}
+
+	// MRV with forward checking, MAC, and MRV with forward checking in domain order
+	public Map<V, D> portfolio(long seed) {
+		return portfolio(List.of(SearchStrategy.MRV_FORWARD_CHECKING, SearchStrategy.MAC,
+				new SearchStrategy(SearchStrategy.VariableSelection.MINIMUM_REMAINING_VALUES,
+						SearchStrategy.ValueOrdering.DOMAIN_ORDER, SearchStrategy.Inference.FORWARD_CHECKING)),
+				seed);
+	}
+
+	// Runs one task per strategy, each breaking ties at random and restarting
+	// after RESTART_NODES times the next term of the Luby sequence
+	// (1, 1, 2, 1, 1, 2, 4, ...) nodes. Returns the first solution found, or
+	// null once some run gets through its whole tree without one.
+	public Map<V, D> portfolio(List<SearchStrategy> strategies, long seed) {
+		AtomicReference<Map<V, D>> solution = new AtomicReference<>();
+		AtomicBoolean finished = new AtomicBoolean();
+		List<ForkJoinTask<?>> racers = new ArrayList<>();
+		for (int i = 0; i < strategies.size(); i++) {
+			SearchStrategy strategy = strategies.get(i);
+			Random random = new Random(seed + i);
+			racers.add(pool.submit(() -> race(strategy, random, solution, finished)));
+		}
+		for (ForkJoinTask<?> racer : racers) {
+			racer.join();
+		}
+		return solution.get();
+	}
+
+	private void race(SearchStrategy strategy, Random random, AtomicReference<Map<V, D>> solution,
+			AtomicBoolean finished) {
+		CSPSolver<V, D> solver = new CSPSolver<>(csp, strategy);
+		solver.setRandom(random);
+		solver.setStop(finished::get);
+		for (int run = 1; !finished.get(); run++) {
+			solver.setNodeLimit(RESTART_NODES * luby(run));
+			Map<V, D> result = solver.solve();
+			if (result != null) {
+				solution.compareAndSet(null, result);
+				finished.set(true);
+			} else if (!solver.wasStopped()) {
+				finished.set(true); // every assignment tried, there is no solution
+			}
+		}
+	}
+
+	// the *i*th term, counting from 1, of 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8, ...
+	static long luby(int i) {
+		for (int k = 1;; k++) {
+			long end = (1L << k) - 1; // where the run of length 2^k - 1 ends
+			if (i == end) {
+				return 1L << (k - 1);
+			}
+			if (i < end) {
+				return luby(i - (int) (1L << (k - 1)) + 1);
+			}
+		}
+	}
+
+	public static void main(String[] args) {
+		// 24 queens, found by splitting the tree and by racing strategies
+		List<Integer> columns = new ArrayList<>();
+		Map<Integer, List<Integer>> rows = new HashMap<>();
+		for (int column = 1; column <= 24; column++) {
+			columns.add(column);
+		}
+		for (int column : columns) {
+			rows.put(column, columns);
+		}
+		CSP<Integer, Integer> csp = new CSP<>(columns, rows);
+		csp.addConstraint(new QueensConstraint(columns));
+		ParallelCSPSolver<Integer, Integer> solver = new ParallelCSPSolver<>(csp);
+		System.out.println(solver.solve(SearchStrategy.MRV_FORWARD_CHECKING));
+		System.out.println(solver.portfolio(42));
+	}
+
+}
@@ -16,12 +16,15 @@
 
 package chapter3;
 
+import java.util.AbstractList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.function.Consumer;
 
-public class QueensConstraint extends Constraint<Integer, Integer> {
+public class QueensConstraint extends Constraint<Integer, Integer>
+		implements CountingConstraint<Integer, Integer> {
 	private List<Integer> columns;
 
 	public QueensConstraint(List<Integer> columns) {
@@ -54,6 +57,125 @@ public class QueensConstraint extends Constraint<Integer, Integer> {
 		return true; // no conflict
 	}
 
+	// a counter with no queens placed, for one MinConflictsSolver run
+	@Override
+	public ConflictCounter<Integer, Integer> newCounter() {
+		return new QueensCounter(columns.size());
+	}
+
+	// queens placed in each row and on each diagonal, rows and columns running
+	// from 1 to n
+	private static final class QueensCounter implements ConflictCounter<Integer, Integer> {
+		private final int n;
+		private final int[] rowCounts, diagonalCounts, antiDiagonalCounts;
+		// the columns of those queens added up, which names the queen when there's only one
+		private final long[] rowColumns, diagonalColumns, antiDiagonalColumns;
+		// the rows without a queen, packed, and where each one is in freeRows (-1 if not free)
+		private final int[] freeRows, freeRowPositions;
+		private int freeRowCount;
+
+		QueensCounter(int n) {
+			this.n = n;
+			rowCounts = new int[n + 1];
+			diagonalCounts = new int[2 * n + 1];
+			antiDiagonalCounts = new int[2 * n + 1];
+			rowColumns = new long[n + 1];
+			diagonalColumns = new long[2 * n + 1];
+			antiDiagonalColumns = new long[2 * n + 1];
+			freeRows = new int[n];
+			freeRowPositions = new int[n + 1];
+			for (int row = 1; row <= n; row++) {
+				freeRows[row - 1] = row;
+				freeRowPositions[row] = row - 1;
+			}
+			freeRowCount = n;
+		}
+
+		@Override
+		public void place(Integer column, Integer row) {
+			count(column, row, 1);
+		}
+
+		@Override
+		public void unplace(Integer column, Integer row) {
+			count(column, row, -1);
+		}
+
+		private void count(int column, int row, int change) {
+			if (rowCounts[row] == 0) { // no longer free
+				int position = freeRowPositions[row];
+				int last = freeRows[--freeRowCount];
+				freeRows[position] = last;
+				freeRowPositions[last] = position;
+				freeRowPositions[row] = -1;
+			}
+			rowCounts[row] += change;
+			if (rowCounts[row] == 0) { // free again
+				freeRows[freeRowCount] = row;
+				freeRowPositions[row] = freeRowCount++;
+			}
+			rowColumns[row] += change * column;
+			diagonalCounts[row - column + n] += change;
+			diagonalColumns[row - column + n] += change * column;
+			antiDiagonalCounts[row + column] += change;
+			antiDiagonalColumns[row + column] += change * column;
+		}
+
+		@Override
+		public int conflicts(Integer column, Integer row) {
+			// no two queens can share both a row and a diagonal, so nothing is counted twice
+			return rowCounts[row] + diagonalCounts[row - column + n] + antiDiagonalCounts[row + column];
+		}
+
+		@Override
+		public boolean conflicting(Integer column, Integer row, Consumer<Integer> action) {
+			int diagonal = row - column + n, antiDiagonal = row + column;
+			return name(rowCounts[row], rowColumns[row], action)
+					& name(diagonalCounts[diagonal], diagonalColumns[diagonal], action)
+					& name(antiDiagonalCounts[antiDiagonal], antiDiagonalColumns[antiDiagonal], action);
+		}
+
+		// the queen on a line, if it's the only one
+		private static boolean name(int count, long columnSum, Consumer<Integer> action) {
+			if (count == 1) {
+				action.accept((int) columnSum);
+			}
+			return count <= 1;
+		}
+
+		@Override
+		public List<Integer> freeValues(Integer column) {
+			return new AbstractList<>() {
+				@Override
+				public Integer get(int index) {
+					return freeRows[index];
+				}
+
+				@Override
+				public int size() {
+					return freeRowCount;
+				}
+			};
+		}
+	}
+
+	// only the queen in *column* can be in conflict
+	@Override
+	public boolean satisfied(Integer column, Map<Integer, Integer> assignment) {
+		int q1c = column;
+		int q1r = assignment.get(column);
+		for (Integer q2c : columns) {
+			Integer q2r = assignment.get(q2c);
+			if (q2c != q1c && q2r != null) {
+				// same row or same diagonal?
+				if (q1r == q2r || Math.abs(q1r - q2r) == Math.abs(q1c - q2c)) {
+					return false;
+				}
+			}
+		}
+		return true; // no conflict
+	}
+
 	public static void main(String[] args) {
 		List<Integer> columns = List.of(1, 2, 3, 4, 5, 6, 7, 8);
 		Map<Integer, List<Integer>> rows = new HashMap<>();
@@ -68,5 +190,17 @@ public class QueensConstraint extends Constraint<Integer, Integer> {
 		} else {
 			System.out.println(solution);
 		}
+		// compare the book's search with MRV, least constraining value and forward checking
+		for (SearchStrategy strategy : List.of(SearchStrategy.BOOK, SearchStrategy.MRV_FORWARD_CHECKING)) {
+			CSPSolver<Integer, Integer> solver = new CSPSolver<>(csp, strategy);
+			System.out.println(strategy + ": " + solver.solve());
+			System.out.println("nodes: " + solver.getNodes() + ", backtracks: " + solver.getBacktracks()
+					+ ", values pruned: " + solver.getValuesPruned());
+		}
+		// every placement, counted and streamed
+		System.out.println("There are " + csp.countSolutions() + " solutions");
+		csp.solutions().limit(3).forEach(System.out::println);
+		System.out.println(csp.solutions().parallel().filter(s -> s.get(1) == 1).count()
+				+ " of them have a queen in the corner");
 	}
 }
@@ -0,0 +1,76 @@
+// SearchStrategy.java
+// From Classic Computer Science Problems in Java Chapter 3
+// Copyright 2020 David Kopec
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package chapter3;
+
+// How CSPSolver picks the next variable, the order it tries that variable's
+// values in, what it infers after each assignment, and whether the domains
+// are made arc consistent before search starts. BOOK searches the same way as
+// CSP.backtrackingSearch().
+public final class SearchStrategy {
+
+	public enum VariableSelection {
+		FIRST_UNASSIGNED, // in the order the variables were given to the CSP
+		MINIMUM_REMAINING_VALUES, // the variable with the fewest values left
+		MRV_DEGREE // MRV, ties go to the variable with the most unassigned neighbors
+	}
+
+	public enum ValueOrdering {
+		DOMAIN_ORDER, // in the order the domain lists them
+		LEAST_CONSTRAINING_VALUE // values that rule out the fewest neighbor values first
+	}
+
+	public enum Inference {
+		NONE,
+		FORWARD_CHECKING, // remove neighbor values that conflict with each new assignment
+		MAC // forward checking, then AC-3 over the binary constraints (maintained arc consistency)
+	}
+
+	public static final SearchStrategy BOOK = new SearchStrategy(VariableSelection.FIRST_UNASSIGNED,
+			ValueOrdering.DOMAIN_ORDER, Inference.NONE);
+	public static final SearchStrategy MRV_FORWARD_CHECKING = new SearchStrategy(VariableSelection.MRV_DEGREE,
+			ValueOrdering.LEAST_CONSTRAINING_VALUE, Inference.FORWARD_CHECKING);
+	public static final SearchStrategy MAC = new SearchStrategy(VariableSelection.MRV_DEGREE,
+			ValueOrdering.LEAST_CONSTRAINING_VALUE, Inference.MAC, true);
+	// when every solution is wanted the value order makes no difference, so don't pay for LCV
+	public static final SearchStrategy ALL_SOLUTIONS = new SearchStrategy(VariableSelection.MRV_DEGREE,
+			ValueOrdering.DOMAIN_ORDER, Inference.FORWARD_CHECKING);
+
+	public final VariableSelection variableSelection;
+	public final ValueOrdering valueOrdering;
+	public final Inference inference;
+	// run AC-3 over the binary constraints once before search
+	public final boolean arcConsistency;
+
+	public SearchStrategy(VariableSelection variableSelection, ValueOrdering valueOrdering, Inference inference) {
+		this(variableSelection, valueOrdering, inference, false);
+	}
+
+	public SearchStrategy(VariableSelection variableSelection, ValueOrdering valueOrdering, Inference inference,
+			boolean arcConsistency) {
+		this.variableSelection = variableSelection;
+		this.valueOrdering = valueOrdering;
+		this.inference = inference;
+		this.arcConsistency = arcConsistency;
+	}
+
+	@Override
+	public String toString() {
+		return variableSelection + ", " + valueOrdering + ", " + inference
+				+ (arcConsistency ? ", arc consistent" : "");
+	}
+
+}
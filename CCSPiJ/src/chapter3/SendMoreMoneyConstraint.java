@@ -38,28 +38,44 @@ public class SendMoreMoneyConstraint extends Constraint<Character, Integer> {
 
 		// if all variables have been assigned, check if it adds correctly
 		if (assignment.size() == letters.size()) {
-			int s = assignment.get('S');
-			// so we don't get answers starting with a 0
-			if (s == 0) {
-				return false;
-			}
-			int e = assignment.get('E');
-			int n = assignment.get('N');
-			int d = assignment.get('D');
-			int m = assignment.get('M');
-			// so we don't get answers starting with a 0
-			if (m == 0) {
+			return addsUp(assignment);
+		}
+		return true; // no conflicts
+	}
+
+	private boolean addsUp(Map<Character, Integer> assignment) {
+		int s = assignment.get('S');
+		// so we don't get answers starting with a 0
+		if (s == 0) {
+			return false;
+		}
+		int e = assignment.get('E');
+		int n = assignment.get('N');
+		int d = assignment.get('D');
+		int m = assignment.get('M');
+		// so we don't get answers starting with a 0
+		if (m == 0) {
+			return false;
+		}
+		int o = assignment.get('O');
+		int r = assignment.get('R');
+		int y = assignment.get('Y');
+		int send = s * 1000 + e * 100 + n * 10 + d;
+		int more = m * 1000 + o * 100 + r * 10 + e;
+		int money = m * 10000 + o * 1000 + n * 100 + e * 10 + y;
+		return send + more == money;
+	}
+
+	// only *letter* can duplicate a digit, and the sum can't be checked until the end
+	@Override
+	public boolean satisfied(Character letter, Map<Character, Integer> assignment) {
+		Integer digit = assignment.get(letter);
+		for (Character other : letters) {
+			if (!other.equals(letter) && digit.equals(assignment.get(other))) {
 				return false;
 			}
-			int o = assignment.get('O');
-			int r = assignment.get('R');
-			int y = assignment.get('Y');
-			int send = s * 1000 + e * 100 + n * 10 + d;
-			int more = m * 1000 + o * 100 + r * 10 + e;
-			int money = m * 10000 + o * 1000 + n * 100 + e * 10 + y;
-			return send + more == money;
 		}
-		return true; // no conflicts
+		return assignment.size() < letters.size() || addsUp(assignment);
 	}
 
 	public static void main(String[] args) {
@@ -0,0 +1,84 @@
+// SolutionSpliterator.java
+// From Classic Computer Science Problems in Java Chapter 3
+// Copyright 2020 David Kopec
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package chapter3;
+
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+// The solutions of a CSP, found one at a time by a CSPSolver as they are asked
+// for, so only the search stack is ever held in memory. Splitting hands the
+// later half of the values left at the shallowest level of the search to a
+// new spliterator with its own solver, which starts from the assignments
+// above that level.
+final class SolutionSpliterator<V, D> implements Spliterator<Map<V, D>> {
+
+	private final CSP<V, D> csp;
+	private final SearchStrategy strategy;
+	private final CSPSolver.Branch branch; // null for the whole tree
+	private CSPSolver<V, D> solver; // created on first use
+	private boolean exhausted;
+
+	SolutionSpliterator(CSP<V, D> csp, SearchStrategy strategy) {
+		this(csp, strategy, null);
+	}
+
+	private SolutionSpliterator(CSP<V, D> csp, SearchStrategy strategy, CSPSolver.Branch branch) {
+		this.csp = csp;
+		this.strategy = strategy;
+		this.branch = branch;
+	}
+
+	private void ensureStarted() {
+		if (solver != null) {
+			return;
+		}
+		solver = new CSPSolver<>(csp, strategy);
+		boolean consistent = branch == null ? solver.start(new int[0], new int[0])
+				: solver.start(branch.prefixVariables, branch.prefixValues, branch.variable, branch.values);
+		exhausted = !consistent;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super Map<V, D>> action) {
+		ensureStarted();
+		if (exhausted || !solver.next()) {
+			exhausted = true;
+			return false;
+		}
+		action.accept(solver.currentSolution());
+		return true;
+	}
+
+	@Override
+	public Spliterator<Map<V, D>> trySplit() {
+		ensureStarted();
+		CSPSolver.Branch half = exhausted ? null : solver.split();
+		return half == null ? null : new SolutionSpliterator<>(csp, strategy, half);
+	}
+
+	@Override
+	public long estimateSize() {
+		return exhausted ? 0 : Long.MAX_VALUE; // unknown until searched
+	}
+
+	@Override
+	public int characteristics() {
+		return DISTINCT | NONNULL;
+	}
+
+}
@@ -64,5 +64,16 @@ public class UnweightedGraph<V> extends Graph<V, Edge> implements Cities {
 			System.out.println("Path from Boston to Miami:");
 			System.out.println(path);
 		}
+
+		// the graph is undirected, so neighbors work in both directions
+		Node<String> bidirectionalResult = GenericSearch.bidirectionalBfs(BOSTON, MIAMI,
+				cityGraph::neighborsOf);
+		if (bidirectionalResult == null) {
+			System.out.println("No solution found using bidirectional breadth-first search!");
+		} else {
+			List<String> path = GenericSearch.nodeToPath(bidirectionalResult);
+			System.out.println("Path from Boston to Miami (bidirectional):");
+			System.out.println(path);
+		}
 	}
 }